@@ -144,6 +144,25 @@ public class Building implements FireDrill {
         }
     }
 
+    /**
+     * Unregisters the timed items of every floor in this building from the
+     * timed item manager, so that they are no longer ticked.
+     * <p>
+     * This ends the building's time in the simulation. It should be called
+     * on the old buildings when a campus is reloaded from a save file, so
+     * that their sensors can be garbage collected. Weak references in the
+     * manager are not enough for this while its timing wheel is enabled, as
+     * items on the wheel are always held strongly.
+     * <p>
+     * Items that do not belong to a room, such as a floor's maintenance
+     * schedule, must be unregistered separately.
+     */
+    public void unregisterTimedItems() {
+        for (int i = 0; i < floors.size(); i++) {
+            floors.get(i).unregisterTimedItems();
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this building.
      *
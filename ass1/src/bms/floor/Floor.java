@@ -197,6 +197,16 @@ public class Floor implements FireDrill {
         }
     }
 
+    /**
+     * Unregisters the timed items of every room on this floor from the timed
+     * item manager, so that they are no longer ticked.
+     */
+    public void unregisterTimedItems() {
+        for (int i = 0; i < rooms.size(); i++) {
+            rooms.get(i).unregisterTimedItems();
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this floor.
      *
@@ -1,10 +1,17 @@
 package bms.room;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import bms.sensors.RollingStatistics;
 import bms.sensors.Sensor;
+import bms.sensors.SensorTypes;
+import bms.sensors.StreamingSensor;
+import bms.sensors.TimedSensor;
 import bms.exceptions.*;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
 
 /**
  * Represents a room on a floor of a building.
@@ -17,6 +24,9 @@ import bms.exceptions.*;
  * the room.
  * <p>
  * Rooms can have one or more sensors to monitor hazard levels in the room.
+ * Besides the list of sensors in alphabetical order, each sensor is kept in
+ * a slot indexed by its type's id, see SensorTypes, so finding the sensor
+ * of a given type takes constant time.
  */
 public class Room {
     private int roomNumber;
@@ -25,6 +35,9 @@ public class Room {
     private boolean fireDrillState = false;
     private ArrayList<Sensor> sensors;
 
+    // sensors indexed by the id of their type; grown as types are added
+    private Sensor[] slots = new Sensor[0];
+
     /**
      * Creates a new room with the given room number.
      *
@@ -120,22 +133,52 @@ public class Room {
      * @return the sensor in this room of the given type; null if none found
      */
     public Sensor getSensor(String sensorType) {
-        for (int i = 0; i < sensors.size(); i++) {
+        return getSensor(SensorTypes.find(sensorType));
+    }
 
-            // check if a sensor with the given sensorType already exists
-            if (sensors.get(i).getClass().getSimpleName().equals(sensorType)) {
-                return sensors.get(i);
-            }
+    /**
+     * Returns the sensor of the given class if there is one in this room;
+     * return null otherwise.
+     * <p>
+     * Like getSensor(String), sensors are matched by the simple name of
+     * their type, so this is the sensor getSensor(type.getSimpleName())
+     * would return, if it is an instance of the given class. A sensor which
+     * only stands in for the given type, see Sensor.getSensorType(), is not
+     * returned. Looking up a class does not register it as a sensor type, so
+     * asking for an interface such as HazardSensor.class just returns null.
+     *
+     * @param type the class of the sensor, e.g. NoiseSensor.class
+     * @param <T>  the type of the sensor
+     * @return the sensor in this room of the given class; null if none found
+     */
+    public <T extends Sensor> T getSensor(Class<T> type) {
+        Sensor sensor = getSensor(type.getSimpleName());
+        if (type.isInstance(sensor)) {
+            return type.cast(sensor);
         }
         return null;
     }
 
+    /**
+     * Returns the sensor in the slot with the given type id, or null.
+     */
+    private Sensor getSensor(int typeId) {
+        Sensor[] current = slots;
+        if (typeId < 0 || typeId >= current.length) {
+            return null;
+        }
+        return current[typeId];
+    }
+
     /**
      * Adds a sensor to the room if a sensor of the same type is not already in
      * the room.
      * <p>
      * The list of sensors should be sorted after adding the new sensor, in
      * alphabetical order by simple class name (Class.getSimpleName()).
+     * <p>
+     * A sensor's type, and the class name it is sorted by, is given by
+     * Sensor.getSensorType().
      *
      * @param sensor the sensor to add to the room
      * @throws DuplicateSensorException if the sensor to add is of the same
@@ -144,17 +187,23 @@ public class Room {
     public void addSensor(Sensor sensor) throws DuplicateSensorException {
 
         // check if a sensor with the given sensorType already exists
-        if (this.getSensor(sensor.getClass().getSimpleName()) != null) {
+        int typeId = SensorTypes.idOf(sensor.getSensorType());
+        if (getSensor(typeId) != null) {
             throw new DuplicateSensorException();
         } else {
+            if (typeId >= slots.length) {
+                slots = Arrays.copyOf(slots, SensorTypes.count());
+            }
+            slots[typeId] = sensor;
             if (sensors.size() == 0) {
                 sensors.add(sensor);
             } else {
 
                 // insertion sort, according to alphabetical order
                 for (int i = 0; i < sensors.size(); i++) {
-                    if (sensor.getClass().getSimpleName().compareTo
-                            (sensors.get(i).getClass().getSimpleName()) < 0) {
+                    if (sensor.getSensorType().getSimpleName().compareTo
+                            (sensors.get(i).getSensorType().getSimpleName())
+                            < 0) {
                         sensors.add(i, sensor);
                         break;
                     } else {
@@ -168,6 +217,47 @@ public class Room {
         }
     }
 
+    /**
+     * Returns rolling statistics of the readings of the given type of sensor
+     * in this room over the given window, see TimedSensor.getStatistics(int).
+     *
+     * @param sensorType the type of sensor, e.g. "CarbonDioxideSensor"
+     * @param window     length of the window in minutes
+     * @return statistics of the sensor's readings; null if there is no timed
+     * sensor of the given type in the room
+     * @throws IllegalArgumentException if window is less than one
+     */
+    public RollingStatistics getSensorStatistics(String sensorType,
+            int window) throws IllegalArgumentException {
+        Sensor sensor = getSensor(sensorType);
+        if (!(sensor instanceof TimedSensor)) {
+            return null;
+        }
+        return ((TimedSensor) sensor).getStatistics(window);
+    }
+
+    /**
+     * Unregisters every timed sensor in this room from the timed item
+     * manager it is registered with, so that they are no longer ticked.
+     * <p>
+     * This should be called once the room is no longer in use, e.g. before
+     * its building is replaced by one reloaded from a save file.
+     */
+    public void unregisterTimedItems() {
+        for (int i = 0; i < sensors.size(); i++) {
+            if (sensors.get(i) instanceof TimedSensor) {
+                TimedSensor sensor = (TimedSensor) sensors.get(i);
+                sensor.getTimedItemManager().unregisterTimedItem(sensor);
+            } else if (sensors.get(i) instanceof StreamingSensor) {
+                StreamingSensor sensor = (StreamingSensor) sensors.get(i);
+                sensor.getTimedItemManager().unregisterTimedItem(sensor);
+            } else if (sensors.get(i) instanceof TimedItem) {
+                TimedItemManager.getInstance().unregisterTimedItem(
+                        (TimedItem) sensors.get(i));
+            }
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this room.
      *
@@ -0,0 +1,72 @@
+package bms.sensors;
+
+import java.util.Arrays;
+
+/**
+ * An immutable reading trace backed by a private int array.
+ * <p>
+ * Two array traces are equal if they hold the same readings in the same
+ * order, so identical traces can be shared, see ReadingTracePool.
+ */
+public final class ArrayReadingTrace implements ReadingTrace {
+    // the readings, never exposed outside this class
+    private final int[] readings;
+
+    // cached hash of the readings
+    private final int hash;
+
+    /**
+     * Creates a new trace holding a copy of the given readings.
+     *
+     * @param readings the readings of the trace
+     */
+    public ArrayReadingTrace(int[] readings) {
+        this.readings = readings.clone();
+        this.hash = Arrays.hashCode(this.readings);
+    }
+
+    @Override
+    public int length() {
+        return readings.length;
+    }
+
+    @Override
+    public int get(int position) {
+        return readings[position];
+    }
+
+    /**
+     * Returns whether this trace holds the same readings as the given array.
+     *
+     * @param other the readings to compare to
+     * @return true if the readings are equal
+     */
+    public boolean contentEquals(int[] other) {
+        return Arrays.equals(readings, other);
+    }
+
+    /**
+     * Returns the approximate number of bytes of heap used by this trace's
+     * readings.
+     *
+     * @return size of the readings array in bytes
+     */
+    public long sizeInBytes() {
+        // array header plus four bytes per reading
+        return 16 + 4L * readings.length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ArrayReadingTrace)) {
+            return false;
+        }
+        ArrayReadingTrace other = (ArrayReadingTrace) obj;
+        return hash == other.hash && Arrays.equals(readings, other.readings);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
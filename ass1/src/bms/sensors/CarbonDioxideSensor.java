@@ -1,10 +1,19 @@
 package bms.sensors;
 
+import bms.util.TimedItemManager;
+
 /**
  * A sensor that measures levels of carbon dioxide (CO2) in the air, in parts
  * per million (ppm).
  */
 public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
+    // highest reading with a precomputed hazard level, in ppm; every reading
+    // above it has a hazard level of 100
+    private static final int MAX_TABLED_READING = 5000;
+
+    // hazard levels of readings from 0 to MAX_TABLED_READING ppm
+    private static final HazardTable HAZARD_TABLE = new HazardTable(
+            MAX_TABLED_READING, CarbonDioxideSensor::evaluateHazardLevel);
 
     private int idealValue;
     private int variationLimit;
@@ -35,7 +44,57 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
     public CarbonDioxideSensor(int[] sensorReadings, int updateFrequency,
             int idealValue, int variationLimit) throws
             IllegalArgumentException {
-        super(sensorReadings, updateFrequency);
+        this(sensorReadings, updateFrequency, idealValue, variationLimit,
+                TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new carbon dioxide sensor registered with the given timed item
+     * manager instead of the default one.
+     *
+     * @param sensorReadings  array of CO2 sensor readings in ppm
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue      ideal CO2 value in ppm
+     * @param variationLimit  acceptable range above and below ideal value
+     *                        in ppm
+     * @param manager         the timed item manager which ticks this sensor
+     * @throws IllegalArgumentException if idealValue <= 0; or if variationLimit
+     *                                  <= 0;
+     *                                  or if (idealValue - variationLimit) < 0
+     * @see #CarbonDioxideSensor(int[], int, int, int)
+     */
+    public CarbonDioxideSensor(int[] sensorReadings, int updateFrequency,
+            int idealValue, int variationLimit, TimedItemManager manager)
+            throws IllegalArgumentException {
+        super(sensorReadings, updateFrequency, manager);
+        if (idealValue <= 0 || variationLimit <= 0 ||
+                (idealValue - variationLimit) < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.idealValue = idealValue;
+        this.variationLimit = variationLimit;
+    }
+
+    /**
+     * Creates a new carbon dioxide sensor iterating through the given reading
+     * trace, registered with the given timed item manager.
+     *
+     * @param sensorReadings  trace of CO2 sensor readings in ppm
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue      ideal CO2 value in ppm
+     * @param variationLimit  acceptable range above and below ideal value
+     *                        in ppm
+     * @param manager         the timed item manager which ticks this sensor
+     * @throws IllegalArgumentException if idealValue <= 0; or if variationLimit
+     *                                  <= 0;
+     *                                  or if (idealValue - variationLimit) < 0
+     */
+    public CarbonDioxideSensor(ReadingTrace sensorReadings,
+            int updateFrequency, int idealValue, int variationLimit,
+            TimedItemManager manager) throws IllegalArgumentException {
+        super(sensorReadings, updateFrequency, manager);
         if (idealValue <= 0 || variationLimit <= 0 ||
                 (idealValue - variationLimit) < 0) {
             throw new IllegalArgumentException();
@@ -69,19 +128,79 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
      */
     @Override
     public int getHazardLevel() {
-        if (0 <= this.getCurrentReading() && this.getCurrentReading() < 1000) {
+        return getMemoisedHazardLevel();
+    }
+
+    @Override
+    protected int computeHazardLevel(int reading) {
+        return calculateHazardLevel(reading);
+    }
+
+    /**
+     * Returns the hazard level of the given CO2 reading.
+     *
+     * @param reading a CO2 reading in ppm
+     * @return the hazard level as an integer between 0 and 100
+     */
+    static int calculateHazardLevel(int reading) {
+        return HAZARD_TABLE.get(reading);
+    }
+
+    /**
+     * Computes the hazard level of the given CO2 reading from the hazard
+     * bands.
+     */
+    private static int evaluateHazardLevel(int reading) {
+        if (0 <= reading && reading < 1000) {
             return 0;
-        } else if (1000 <= this.getCurrentReading()
-                && this.getCurrentReading() < 2000) {
+        } else if (1000 <= reading && reading < 2000) {
             return 25;
-        } else if (2000 <= this.getCurrentReading()
-                && this.getCurrentReading() < 5000) {
+        } else if (2000 <= reading && reading < 5000) {
             return 50;
         } else {
             return 100;
         }
     }
 
+    /**
+     * Returns the hazard level of each of the given CO2 readings, as
+     * calculated for a single reading by getHazardLevel().
+     * <p>
+     * This runs in one pass over the readings without creating any sensors,
+     * e.g. to backtest hazard thresholds against recorded readings.
+     *
+     * @param readings CO2 readings in ppm
+     * @return new array holding the hazard level of each reading, 0 to 100
+     * @throws IllegalArgumentException if readings is null, or any reading
+     *                                  is less than zero
+     */
+    public static int[] calculateHazardLevels(int[] readings)
+            throws IllegalArgumentException {
+        if (readings == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] levels = new int[readings.length];
+        calculateHazardLevels(readings, levels);
+        return levels;
+    }
+
+    /**
+     * Stores the hazard level of each of the given CO2 readings in the
+     * given array, see calculateHazardLevels(int[]).
+     *
+     * @param readings CO2 readings in ppm
+     * @param levels   array to store the hazard levels in, at least as long
+     *                 as readings
+     * @throws IllegalArgumentException if either array is null, levels is
+     *                                  shorter than readings, or any reading
+     *                                  is less than zero
+     */
+    public static void calculateHazardLevels(int[] readings,
+            int[] levels) throws IllegalArgumentException {
+        HazardTable.checkBulk(readings, levels);
+        HAZARD_TABLE.getAll(readings, levels);
+    }
+
     /**
      * Returns the human-readable string representation of this CO2 sensor.
      *
@@ -0,0 +1,161 @@
+package bms.sensors;
+
+/**
+ * An immutable reading trace stored in frame-of-reference blocks.
+ * <p>
+ * The readings are split into blocks of 128. Each block keeps its lowest
+ * reading as a base, and every reading of the block as its offset from that
+ * base, packed with just enough bits for the block's largest offset. Slowly
+ * varying readings, such as CO2 or noise levels recorded every minute, have
+ * small offsets within a block, and typically need a few bits per reading
+ * instead of 32.
+ * <p>
+ * Any reading can be read in constant time, by locating its block and bit
+ * position directly.
+ */
+public final class CompressedReadingTrace implements ReadingTrace {
+    // log2 of the number of readings per block
+    private static final int BLOCK_SHIFT = 7;
+
+    // the number of readings per block
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    // the number of readings in the trace
+    private final int length;
+
+    // lowest reading of each block
+    private final int[] bases;
+
+    // number of bits per offset in each block, 0 to 32
+    private final byte[] widths;
+
+    // bit position of the first offset of each block in data
+    private final long[] starts;
+
+    // offsets of every reading from its block's base, packed end to end
+    private final long[] data;
+
+    /**
+     * Creates a new trace holding a compressed copy of the given readings.
+     *
+     * @param readings the readings of the trace
+     * @throws IllegalArgumentException if readings is null or empty
+     */
+    public CompressedReadingTrace(int[] readings)
+            throws IllegalArgumentException {
+        if (readings == null || readings.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        this.length = readings.length;
+        int blocks = (length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        this.bases = new int[blocks];
+        this.widths = new byte[blocks];
+        this.starts = new long[blocks];
+
+        // first pass finds each block's base and width
+        long bits = 0;
+        for (int block = 0; block < blocks; block++) {
+            int from = block << BLOCK_SHIFT;
+            int to = Math.min(from + BLOCK_SIZE, length);
+            int min = readings[from];
+            int max = readings[from];
+            for (int i = from + 1; i < to; i++) {
+                min = Math.min(min, readings[i]);
+                max = Math.max(max, readings[i]);
+            }
+            int width = 64 - Long.numberOfLeadingZeros((long) max - min);
+            bases[block] = min;
+            widths[block] = (byte) width;
+            starts[block] = bits;
+            bits += (long) width * (to - from);
+        }
+
+        // second pass packs the offsets
+        this.data = new long[(int) ((bits + 63) >>> 6)];
+        for (int block = 0; block < blocks; block++) {
+            int from = block << BLOCK_SHIFT;
+            int to = Math.min(from + BLOCK_SIZE, length);
+            int width = widths[block];
+            long bit = starts[block];
+            for (int i = from; i < to && width > 0; i++) {
+                write(bit, (long) readings[i] - bases[block]);
+                bit += width;
+            }
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int get(int position) {
+        if (position < 0 || position >= length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int block = position >>> BLOCK_SHIFT;
+        int width = widths[block];
+        if (width == 0) {
+            return bases[block];
+        }
+        long bit = starts[block]
+                + (long) (position & (BLOCK_SIZE - 1)) * width;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = data[word] >>> shift;
+        if (shift + width > 64) {
+            value |= data[word + 1] << (64 - shift);
+        }
+        return (int) (bases[block] + (value & ((1L << width) - 1)));
+    }
+
+    /**
+     * Returns the lowest reading, found from the bases of the blocks.
+     *
+     * @return lowest reading of the trace
+     */
+    @Override
+    public int getMinimum() {
+        int min = bases[0];
+        for (int i = 1; i < bases.length; i++) {
+            min = Math.min(min, bases[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the approximate number of bytes of heap used by this trace's
+     * readings.
+     *
+     * @return size of the compressed readings in bytes
+     */
+    public long sizeInBytes() {
+        // four arrays with their headers
+        return 64 + 4L * bases.length + widths.length + 8L * starts.length
+                + 8L * data.length;
+    }
+
+    /**
+     * Returns the number of bytes an uncompressed array of the same readings
+     * would use divided by the number this trace uses.
+     *
+     * @return compression ratio of this trace
+     */
+    public double getCompressionRatio() {
+        return (16 + 4.0 * length) / sizeInBytes();
+    }
+
+    /**
+     * Writes an offset into data at the given bit position, which must not
+     * have been written yet.
+     */
+    private void write(long bit, long offset) {
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        data[word] |= offset << shift;
+        if (shift != 0 && (offset >>> (64 - shift)) != 0) {
+            data[word + 1] |= offset >>> (64 - shift);
+        }
+    }
+}
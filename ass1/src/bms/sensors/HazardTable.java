@@ -0,0 +1,108 @@
+package bms.sensors;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A precomputed table of the hazard levels of every reading in a bounded
+ * range, for a hazard function that depends only on the reading.
+ * <p>
+ * The table is built once when created and never changes, so it may be
+ * shared by every sensor of a type. Readings outside the range are passed to
+ * the hazard function itself.
+ */
+final class HazardTable {
+    // the hazard function the table was built from
+    private final IntUnaryOperator function;
+
+    // hazard levels of readings 0 to levels.length - 1; always 0 to 100
+    private final byte[] levels;
+
+    /**
+     * Creates a table of the given hazard function over readings 0 to
+     * maxReading inclusive.
+     *
+     * @param maxReading the largest reading to precompute
+     * @param function   hazard function returning 0 to 100 for any reading
+     * @throws IllegalArgumentException if maxReading is less than zero
+     */
+    HazardTable(int maxReading, IntUnaryOperator function)
+            throws IllegalArgumentException {
+        if (maxReading < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.function = function;
+        this.levels = new byte[maxReading + 1];
+        for (int reading = 0; reading <= maxReading; reading++) {
+            levels[reading] = (byte) function.applyAsInt(reading);
+        }
+    }
+
+    /**
+     * Returns the hazard level of the given reading, looked up in the table
+     * if it is in range and computed otherwise.
+     *
+     * @param reading a sensor reading
+     * @return hazard level of the reading, 0 to 100
+     */
+    int get(int reading) {
+        if (reading >= 0 && reading < levels.length) {
+            return levels[reading];
+        }
+        return function.applyAsInt(reading);
+    }
+
+    /**
+     * Looks up the hazard level of each of the given non-negative readings.
+     * <p>
+     * Readings above the table's range are looked up as its largest reading,
+     * so this may only be used for hazard functions which are constant above
+     * the range. The loop has no branches besides the clamp.
+     *
+     * @param readings non-negative sensor readings
+     * @param levels   array to store the hazard level of each reading in, at
+     *                 least as long as readings
+     */
+    void getAll(int[] readings, int[] levels) {
+        byte[] table = this.levels;
+        int max = table.length - 1;
+        for (int i = 0; i < readings.length; i++) {
+            levels[i] = table[Math.min(readings[i], max)];
+        }
+    }
+
+    /**
+     * Checks the arguments of a bulk hazard level calculation.
+     *
+     * @param readings sensor readings, which must all be non-negative
+     * @param levels   array for the hazard levels, which must be at least as
+     *                 long as readings
+     * @throws IllegalArgumentException if either array is null, levels is
+     *                                  shorter than readings, or any reading
+     *                                  is less than zero
+     */
+    static void checkBulk(int[] readings, int[] levels)
+            throws IllegalArgumentException {
+        if (readings == null || levels == null
+                || levels.length < readings.length) {
+            throw new IllegalArgumentException();
+        }
+
+        // the sign bit survives the or of every reading
+        int signs = 0;
+        for (int i = 0; i < readings.length; i++) {
+            signs |= readings[i];
+        }
+        if (signs < 0) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Returns the largest reading held in the table.
+     *
+     * @return largest precomputed reading
+     */
+    int getMaxReading() {
+        return levels.length - 1;
+    }
+}
@@ -0,0 +1,164 @@
+package bms.sensors;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only reading trace stored in a binary trace file and memory-mapped
+ * rather than loaded onto the heap.
+ * <p>
+ * A trace file holds a 16 byte header followed by every reading as a
+ * big-endian 4 byte integer. The header is the magic number "BMST", the
+ * format version, the number of readings and the lowest reading. Trace files
+ * are produced with write(int[], String).
+ * <p>
+ * The readings are not loaded onto the heap; the operating system pages them
+ * in as they are read. Files larger than a single mapping allows are mapped
+ * in several chunks.
+ * <p>
+ * The lowest reading in the header is what sensors check their readings
+ * against, so it is not trusted blindly: opening a trace reads through it
+ * once and rejects a file whose lowest reading differs from its header, so
+ * reading a position afterwards costs no check. The file must not be changed
+ * while it is mapped.
+ */
+public final class MappedReadingTrace implements ReadingTrace {
+    // marks the start of a trace file, "BMST"
+    private static final int MAGIC = 0x424D5354;
+
+    // version of the trace file format
+    private static final int VERSION = 1;
+
+    // length of the header in bytes
+    private static final int HEADER = 16;
+
+    // log2 of the number of readings per mapped chunk
+    private static final int CHUNK_SHIFT = 27;
+
+    // the number of readings in the trace
+    private final int length;
+
+    // the lowest reading, as recorded in the header
+    private final int minimum;
+
+    // mappings of consecutive chunks of readings
+    private final ByteBuffer[] chunks;
+
+    /**
+     * Opens and maps the trace file with the given filename.
+     *
+     * @param filename path of the trace file
+     * @throws IOException if an IOException is encountered when reading, or
+     *                     the file is not a valid trace file, including one
+     *                     whose lowest reading is not the one in its header
+     */
+    public MappedReadingTrace(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException();
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException();
+            }
+            this.length = header.getInt();
+            this.minimum = header.getInt();
+            if (length < 1 || channel.size() != HEADER + 4L * length) {
+                throw new IOException();
+            }
+
+            // the mappings stay valid after the channel is closed
+            int count = ((length - 1) >>> CHUNK_SHIFT) + 1;
+            this.chunks = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long first = (long) i << CHUNK_SHIFT;
+                long readings = Math.min(1L << CHUNK_SHIFT, length - first);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER + 4 * first, 4 * readings);
+            }
+        }
+        if (findMinimum() != minimum) {
+            throw new IOException();
+        }
+    }
+
+    /**
+     * Returns the lowest reading actually in the mapped file.
+     */
+    private int findMinimum() {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < chunks.length; i++) {
+            ByteBuffer chunk = chunks[i];
+            for (int offset = 0; offset < chunk.limit(); offset += 4) {
+                min = Math.min(min, chunk.getInt(offset));
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Writes the given readings to a new trace file with the given filename,
+     * replacing any existing file.
+     *
+     * @param readings the readings to write
+     * @param filename path of the trace file to write
+     * @throws IllegalArgumentException if readings is null or empty
+     * @throws IOException              if an IOException is encountered when
+     *                                  writing
+     */
+    public static void write(int[] readings, String filename)
+            throws IllegalArgumentException, IOException {
+        if (readings == null || readings.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        int min = readings[0];
+        for (int i = 1; i < readings.length; i++) {
+            min = Math.min(min, readings[i]);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(readings.length);
+            out.writeInt(min);
+            for (int i = 0; i < readings.length; i++) {
+                out.writeInt(readings[i]);
+            }
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int get(int position) {
+        if (position < 0 || position >= length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return chunks[position >>> CHUNK_SHIFT].getInt(
+                (position & ((1 << CHUNK_SHIFT) - 1)) << 2);
+    }
+
+    /**
+     * Returns the lowest reading recorded in the trace file's header, so the
+     * trace need not be read to find it.
+     *
+     * @return lowest reading of the trace
+     */
+    @Override
+    public int getMinimum() {
+        return minimum;
+    }
+}
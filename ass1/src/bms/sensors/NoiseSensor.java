@@ -1,11 +1,19 @@
 package bms.sensors;
 
+import bms.util.TimedItemManager;
+
 import java.lang.Math;
 
 /**
  * A sensor that measures the noise levels in a room.
  */
 public class NoiseSensor extends TimedSensor implements HazardSensor {
+    // loudest reading with a precomputed hazard level, in decibels
+    private static final int MAX_TABLED_READING = 140;
+
+    // hazard levels of readings from 0 to MAX_TABLED_READING decibels
+    private static final HazardTable HAZARD_TABLE = new HazardTable(
+            MAX_TABLED_READING, NoiseSensor::evaluateHazardLevel);
 
     /**
      * Creates a new noise sensor with the given sensor readings and update
@@ -19,6 +27,34 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
         super(sensorReadings, updateFrequency);
     }
 
+    /**
+     * Creates a new noise sensor registered with the given timed item manager
+     * instead of the default one.
+     *
+     * @param sensorReadings  array of noise sensor readings in decibels
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param manager         the timed item manager which ticks this sensor
+     */
+    public NoiseSensor(int[] sensorReadings, int updateFrequency,
+            TimedItemManager manager) {
+        super(sensorReadings, updateFrequency, manager);
+    }
+
+    /**
+     * Creates a new noise sensor iterating through the given reading trace,
+     * registered with the given timed item manager.
+     *
+     * @param sensorReadings  trace of noise sensor readings in decibels
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param manager         the timed item manager which ticks this sensor
+     */
+    public NoiseSensor(ReadingTrace sensorReadings, int updateFrequency,
+            TimedItemManager manager) {
+        super(sensorReadings, updateFrequency, manager);
+    }
+
     /**
      * Calculates the relative loudness level compared to a reference of 70.0
      * decibels.
@@ -39,8 +75,20 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
      * @return relative loudness of current reading to 70dB
      */
     public double calculateRelativeLoudness() {
+        return calculateRelativeLoudness(this.getCurrentReading());
+    }
+
+    /**
+     * Calculates the relative loudness of the given reading compared to a
+     * reference of 70.0 decibels, rounded to four decimal places.
+     *
+     * @param reading a noise reading in decibels
+     * @return relative loudness of the reading to 70dB
+     * @see #calculateRelativeLoudness()
+     */
+    static double calculateRelativeLoudness(int reading) {
         double relativeLoudness = Math.round(Math.pow(2,
-                ((this.getCurrentReading() - 70.0) / 10.0)) * 10000);
+                ((reading - 70.0) / 10.0)) * 10000);
         double roundedRelativeLoudness = relativeLoudness / 10000;
         return roundedRelativeLoudness;
     }
@@ -65,7 +113,31 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
      */
     @Override
     public int getHazardLevel() {
-        float relativeLoudness = ((float) this.calculateRelativeLoudness())
+        return getMemoisedHazardLevel();
+    }
+
+    @Override
+    protected int computeHazardLevel(int reading) {
+        return calculateHazardLevel(reading);
+    }
+
+    /**
+     * Returns the hazard level of the given noise reading.
+     *
+     * @param reading a noise reading in decibels
+     * @return level of hazard at the reading, 0 to 100
+     * @see #getHazardLevel()
+     */
+    static int calculateHazardLevel(int reading) {
+        return HAZARD_TABLE.get(reading);
+    }
+
+    /**
+     * Computes the hazard level of the given noise reading from its relative
+     * loudness.
+     */
+    private static int evaluateHazardLevel(int reading) {
+        float relativeLoudness = ((float) calculateRelativeLoudness(reading))
                 * 100;
         int roundRelativeLoudness = (int) Math.floor(relativeLoudness);
         if (roundRelativeLoudness > 100) {
@@ -74,6 +146,45 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
         return roundRelativeLoudness;
     }
 
+    /**
+     * Returns the hazard level of each of the given noise readings, as
+     * calculated for a single reading by getHazardLevel().
+     * <p>
+     * This runs in one pass over the readings without creating any sensors,
+     * e.g. to backtest hazard thresholds against recorded readings.
+     *
+     * @param readings noise readings in decibels
+     * @return new array holding the hazard level of each reading, 0 to 100
+     * @throws IllegalArgumentException if readings is null, or any reading
+     *                                  is less than zero
+     */
+    public static int[] calculateHazardLevels(int[] readings)
+            throws IllegalArgumentException {
+        if (readings == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] levels = new int[readings.length];
+        calculateHazardLevels(readings, levels);
+        return levels;
+    }
+
+    /**
+     * Stores the hazard level of each of the given noise readings in the
+     * given array, see calculateHazardLevels(int[]).
+     *
+     * @param readings noise readings in decibels
+     * @param levels   array to store the hazard levels in, at least as long
+     *                 as readings
+     * @throws IllegalArgumentException if either array is null, levels is
+     *                                  shorter than readings, or any reading
+     *                                  is less than zero
+     */
+    public static void calculateHazardLevels(int[] readings,
+            int[] levels) throws IllegalArgumentException {
+        HazardTable.checkBulk(readings, levels);
+        HAZARD_TABLE.getAll(readings, levels);
+    }
+
     /**
      * Returns the human-readable string representation of this noise sensor.
      *
@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import bms.util.TimedItemManager;
+
 /**
  * A sensor that measures the number of people in a room.
  */
@@ -20,7 +22,46 @@ public class OccupancySensor extends TimedSensor implements HazardSensor {
      */
     public OccupancySensor(int[] sensorReadings, int updateFrequency,
             int capacity) throws IllegalArgumentException {
-        super(sensorReadings, updateFrequency);
+        this(sensorReadings, updateFrequency, capacity,
+                TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new occupancy sensor registered with the given timed item
+     * manager instead of the default one.
+     *
+     * @param sensorReadings  a non-empty array of sensor readings
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity        maximum allowable number of people in the room
+     * @param manager         the timed item manager which ticks this sensor
+     * @throws IllegalArgumentException if capacity is less than zero
+     */
+    public OccupancySensor(int[] sensorReadings, int updateFrequency,
+            int capacity, TimedItemManager manager)
+            throws IllegalArgumentException {
+        super(sensorReadings, updateFrequency, manager);
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a new occupancy sensor iterating through the given reading
+     * trace, registered with the given timed item manager.
+     *
+     * @param sensorReadings  a non-empty trace of sensor readings
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity        maximum allowable number of people in the room
+     * @param manager         the timed item manager which ticks this sensor
+     * @throws IllegalArgumentException if capacity is less than zero
+     */
+    public OccupancySensor(ReadingTrace sensorReadings, int updateFrequency,
+            int capacity, TimedItemManager manager)
+            throws IllegalArgumentException {
+        super(sensorReadings, updateFrequency, manager);
         if (capacity < 0) {
             throw new IllegalArgumentException();
         }
@@ -56,16 +97,84 @@ public class OccupancySensor extends TimedSensor implements HazardSensor {
      */
     @Override
     public int getHazardLevel() {
-        if (this.getCurrentReading() >= capacity) {
+        return getMemoisedHazardLevel();
+    }
+
+    @Override
+    protected int computeHazardLevel(int reading) {
+        return calculateHazardLevel(reading, capacity);
+    }
+
+    /**
+     * Returns the hazard level of the given occupancy reading in a room with
+     * the given capacity.
+     *
+     * @param reading  the number of people in the room
+     * @param capacity maximum allowable number of people in the room
+     * @return the hazard level as an integer between 0 and 100
+     * @see #getHazardLevel()
+     */
+    static int calculateHazardLevel(int reading, int capacity) {
+        if (reading >= capacity) {
             return 100;
         }
 
         // current occupancy divided by maximum capacity and then rounds down
-        float ratio = ((float) this.getCurrentReading()) / capacity;
+        float ratio = ((float) reading) / capacity;
         int roundRatio = (int) Math.floor(ratio);
         return roundRatio;
     }
 
+    /**
+     * Returns the hazard level of each of the given occupancy readings, as
+     * calculated for a single reading by getHazardLevel().
+     * <p>
+     * This runs in one pass over the readings without creating any sensors,
+     * e.g. to backtest hazard thresholds against recorded readings.
+     *
+     * @param readings numbers of people in the room
+     * @param capacity maximum allowable number of people in the room
+     * @return new array holding the hazard level of each reading, 0 to 100
+     * @throws IllegalArgumentException if readings is null, any reading is
+     *                                  less than zero, or capacity is less
+     *                                  than zero
+     */
+    public static int[] calculateHazardLevels(int[] readings, int capacity)
+            throws IllegalArgumentException {
+        if (readings == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] levels = new int[readings.length];
+        calculateHazardLevels(readings, capacity, levels);
+        return levels;
+    }
+
+    /**
+     * Stores the hazard level of each of the given occupancy readings in the
+     * given array, see calculateHazardLevels(int[], int).
+     *
+     * @param readings numbers of people in the room
+     * @param capacity maximum allowable number of people in the room
+     * @param levels   array to store the hazard levels in, at least as long
+     *                 as readings
+     * @throws IllegalArgumentException if either array is null, levels is
+     *                                  shorter than readings, any reading is
+     *                                  less than zero, or capacity is less
+     *                                  than zero
+     */
+    public static void calculateHazardLevels(int[] readings, int capacity,
+            int[] levels) throws IllegalArgumentException {
+        HazardTable.checkBulk(readings, levels);
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        int limit = capacity - 1;
+        for (int i = 0; i < readings.length; i++) {
+            // the sign bit of limit - reading is set from capacity upwards
+            levels[i] = ((limit - readings[i]) >>> 31) * 100;
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this occupancy
      * sensor.
@@ -0,0 +1,21 @@
+package bms.sensors;
+
+/**
+ * Receives a notification whenever the current reading of a timed sensor
+ * changes, see TimedSensor.addReadingListener(ReadingListener).
+ * <p>
+ * Listeners are called on the thread ticking the sensor, while it is being
+ * ticked, so they should return quickly and must not tick the sensor
+ * themselves.
+ */
+public interface ReadingListener {
+
+    /**
+     * Called after the current reading of the given sensor has changed.
+     *
+     * @param sensor          the sensor whose reading changed; its new
+     *                        reading is sensor.getCurrentReading()
+     * @param previousReading the sensor's reading before the change
+     */
+    void readingChanged(TimedSensor sensor, int previousReading);
+}
@@ -0,0 +1,39 @@
+package bms.sensors;
+
+/**
+ * A read-only sequence of raw sensor readings which a timed sensor iterates
+ * through.
+ */
+public interface ReadingTrace {
+
+    /**
+     * Returns the number of readings in this trace.
+     *
+     * @return length of the trace, at least one (1)
+     */
+    int length();
+
+    /**
+     * Returns the reading at the given position of this trace.
+     *
+     * @param position index of the reading, from 0 to length() - 1
+     * @return the reading at the given position
+     */
+    int get(int position);
+
+    /**
+     * Returns the lowest reading in this trace.
+     * <p>
+     * By default every reading is visited. Traces which know their minimum
+     * without reading every value should override this.
+     *
+     * @return lowest reading of the trace
+     */
+    default int getMinimum() {
+        int min = get(0);
+        for (int i = 1; i < length(); i++) {
+            min = Math.min(min, get(i));
+        }
+        return min;
+    }
+}
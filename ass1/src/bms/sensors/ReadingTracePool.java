@@ -0,0 +1,147 @@
+package bms.sensors;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns reading traces, so that sensors given identical readings share one
+ * immutable copy of them.
+ * <p>
+ * Save files often reuse the same reading profile for many rooms, and each
+ * sensor line is parsed into a new array. Interning keeps a single read-only
+ * copy of each distinct profile. Traces are held by weak reference, so a
+ * trace no longer used by any sensor can still be garbage collected; the
+ * pool's entry for a collected trace is removed on the next call to the
+ * pool.
+ */
+public class ReadingTracePool {
+    // interned traces, grouped by the hash of their readings
+    private static Map<Integer, List<TraceReference>> traces =
+            new HashMap<>();
+
+    // queue onto which the references of collected traces are enqueued
+    private static final ReferenceQueue<ArrayReadingTrace> collected =
+            new ReferenceQueue<>();
+
+    // the number of distinct traces interned
+    private static long internedCount = 0;
+
+    // the number of intern calls answered with an existing trace
+    private static long sharedCount = 0;
+
+    // the number of bytes of readings that did not need to be kept
+    private static long bytesSaved = 0;
+
+    // not instantiable
+    private ReadingTracePool() {
+    }
+
+    /**
+     * Returns the interned trace holding the given readings, creating it
+     * from a copy of the readings if no such trace exists yet.
+     *
+     * @param readings the readings to intern
+     * @return a shared, immutable trace equal to the given readings
+     */
+    public static synchronized ArrayReadingTrace intern(int[] readings) {
+        purgeCollected();
+        int hash = Arrays.hashCode(readings);
+        List<TraceReference> bucket = traces.get(hash);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            traces.put(hash, bucket);
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            ArrayReadingTrace trace = bucket.get(i).get();
+            if (trace != null && trace.contentEquals(readings)) {
+                sharedCount++;
+                bytesSaved += trace.sizeInBytes();
+                return trace;
+            }
+        }
+        ArrayReadingTrace trace = new ArrayReadingTrace(readings);
+        bucket.add(new TraceReference(trace, hash));
+        internedCount++;
+        return trace;
+    }
+
+    /**
+     * Returns the number of traces currently held by the pool, after
+     * dropping those which have been garbage collected.
+     *
+     * @return number of live interned traces
+     */
+    public static synchronized int size() {
+        purgeCollected();
+        int size = 0;
+        for (List<TraceReference> bucket : traces.values()) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of distinct traces interned so far.
+     *
+     * @return number of interned traces
+     */
+    public static synchronized long getInternedCount() {
+        return internedCount;
+    }
+
+    /**
+     * Returns the number of times an existing trace was shared instead of a
+     * new copy being kept.
+     *
+     * @return number of shared traces
+     */
+    public static synchronized long getSharedCount() {
+        return sharedCount;
+    }
+
+    /**
+     * Returns the total number of bytes of readings that deduplication has
+     * avoided keeping, counted each time an existing trace is shared.
+     *
+     * @return bytes saved by interning
+     */
+    public static synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * Removes the entry of every trace which has been garbage collected,
+     * along with its bucket once that is empty.
+     */
+    private static void purgeCollected() {
+        Reference<? extends ArrayReadingTrace> reference;
+        while ((reference = collected.poll()) != null) {
+            int hash = ((TraceReference) reference).hash;
+            List<TraceReference> bucket = traces.get(hash);
+            if (bucket != null && bucket.remove(reference)
+                    && bucket.isEmpty()) {
+                traces.remove(hash);
+            }
+        }
+    }
+
+    /**
+     * Weak reference to an interned trace, remembering the hash of its
+     * bucket so that it can be removed once the trace is collected.
+     */
+    private static final class TraceReference
+            extends WeakReference<ArrayReadingTrace> {
+        private final int hash;
+
+        private TraceReference(ArrayReadingTrace trace, int hash) {
+            super(trace, collected);
+            this.hash = hash;
+        }
+    }
+}
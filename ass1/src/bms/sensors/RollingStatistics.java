@@ -0,0 +1,316 @@
+package bms.sensors;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Statistics of a sensor's readings over a rolling window of the most recent
+ * minutes: minimum, maximum, mean, variance and an exponentially weighted
+ * moving average (EWMA).
+ * <p>
+ * A sensor's reading is a step function of time, so the statistics are kept
+ * as a list of steps, each a reading and the minute it was first observed.
+ * Every minute of the window counts once, including the current one: at
+ * minute t a window of w minutes covers minutes t - w + 1 to t. Before w
+ * minutes have been observed, only the minutes observed so far are counted.
+ * <p>
+ * Recording a reading takes amortised constant time, and at most window + 1
+ * steps are kept. The minimum and maximum are kept in monotonic queues, and
+ * the mean and variance from running sums over the steps in the window, so
+ * every query also takes amortised constant time. The EWMA weights each
+ * minute by a smoothing factor of 2 / (window + 1).
+ * <p>
+ * All methods are synchronized, so statistics may be queried from any thread
+ * while the sensor is being ticked.
+ */
+public class RollingStatistics {
+    // length of the window in minutes
+    private final int window;
+
+    // EWMA weight kept by the previous average each minute
+    private final double decay;
+
+    // the current minute, e.g. the sensor's time elapsed
+    private final LongSupplier clock;
+
+    // ring of steps in the window; a step's index is its sequence number
+    // modulo the ring length
+    private final long[] starts;
+    private final int[] values;
+
+    // sequence numbers of the oldest step and of the one after the newest
+    private long first = 0;
+    private long end = 0;
+
+    // sequence numbers of steps that may still be the window's minimum, in
+    // increasing order of both sequence number and value
+    private final long[] minQueue;
+    private long minFirst = 0;
+    private long minEnd = 0;
+
+    // sequence numbers of steps that may still be the window's maximum, in
+    // increasing order of sequence number and decreasing order of value
+    private final long[] maxQueue;
+    private long maxFirst = 0;
+    private long maxEnd = 0;
+
+    // sums of value * duration and value^2 * duration over every step except
+    // the newest, which is still open
+    private double closedSum = 0;
+    private double closedSquares = 0;
+
+    // the minute the oldest ever recorded step started
+    private long origin;
+
+    // EWMA up to the minute before the newest step started, or the initial
+    // reading while it is the only step
+    private double average;
+
+    /**
+     * Creates new statistics over the given window, starting at the current
+     * minute of the given clock with the given reading.
+     *
+     * @param window  length of the window in minutes
+     * @param clock   supplies the current minute; must never decrease except
+     *                across a call to reset(int)
+     * @param reading the reading at the current minute
+     * @throws IllegalArgumentException if window is less than one or clock
+     *                                  is null
+     */
+    public RollingStatistics(int window, LongSupplier clock, int reading)
+            throws IllegalArgumentException {
+        if (window < 1 || window == Integer.MAX_VALUE || clock == null) {
+            throw new IllegalArgumentException();
+        }
+        this.window = window;
+        this.decay = 1 - 2.0 / (window + 1);
+        this.clock = clock;
+        this.starts = new long[window + 1];
+        this.values = new int[window + 1];
+        this.minQueue = new long[window + 1];
+        this.maxQueue = new long[window + 1];
+        reset(reading);
+    }
+
+    /**
+     * Returns the length of the window.
+     *
+     * @return window length in minutes
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Discards every recorded reading and restarts the statistics at the
+     * current minute with the given reading, e.g. after the sensor's time
+     * has been restored to an earlier minute.
+     *
+     * @param reading the reading at the current minute
+     */
+    public synchronized void reset(int reading) {
+        first = 0;
+        end = 0;
+        minFirst = 0;
+        minEnd = 0;
+        maxFirst = 0;
+        maxEnd = 0;
+        closedSum = 0;
+        closedSquares = 0;
+        origin = clock.getAsLong();
+        average = reading;
+        push(origin, reading);
+    }
+
+    /**
+     * Records that the reading has changed to the given value at the current
+     * minute.
+     *
+     * @param reading the new reading
+     */
+    public synchronized void record(int reading) {
+        long now = clock.getAsLong();
+        int last = index(end - 1);
+        long lastStart = starts[last];
+        if (now < lastStart) {
+            reset(reading);
+            return;
+        }
+        if (now == lastStart) {
+            // the reading changed again within the same minute, so only the
+            // new reading is counted for it
+            values[last] = reading;
+            if (end - first == 1 && lastStart == origin) {
+                average = reading;
+            }
+            rebuildQueues();
+            return;
+        }
+        int value = values[last];
+        long duration = now - lastStart;
+        closedSum += (double) value * duration;
+        closedSquares += (double) value * value * duration;
+        average = value + (average - value) * Math.pow(decay, duration);
+        evict(now);
+        push(now, reading);
+    }
+
+    /**
+     * Returns the lowest reading in the window.
+     *
+     * @return minimum reading over the window
+     */
+    public synchronized int getMin() {
+        evict(clock.getAsLong());
+        return values[index(minQueue[index(minFirst)])];
+    }
+
+    /**
+     * Returns the highest reading in the window.
+     *
+     * @return maximum reading over the window
+     */
+    public synchronized int getMax() {
+        evict(clock.getAsLong());
+        return values[index(maxQueue[index(maxFirst)])];
+    }
+
+    /**
+     * Returns the mean of the readings at each minute in the window.
+     *
+     * @return mean reading over the window
+     */
+    public synchronized double getMean() {
+        long now = clock.getAsLong();
+        evict(now);
+        return sum(now, false) / covered(now);
+    }
+
+    /**
+     * Returns the population variance of the readings at each minute in the
+     * window.
+     *
+     * @return variance of the readings over the window
+     */
+    public synchronized double getVariance() {
+        long now = clock.getAsLong();
+        evict(now);
+        long minutes = covered(now);
+        double mean = sum(now, false) / minutes;
+        return Math.max(0, sum(now, true) / minutes - mean * mean);
+    }
+
+    /**
+     * Returns the exponentially weighted moving average of the readings at
+     * each minute, up to and including the current minute.
+     *
+     * @return EWMA of the readings
+     */
+    public synchronized double getEwma() {
+        long now = clock.getAsLong();
+        int last = index(end - 1);
+        int value = values[last];
+        long duration = Math.max(0, now + 1 - starts[last]);
+        return value + (average - value) * Math.pow(decay, duration);
+    }
+
+    /**
+     * Returns the number of minutes of the window observed so far.
+     */
+    private long covered(long now) {
+        return now + 1 - Math.max(now + 1 - window, origin);
+    }
+
+    /**
+     * Returns the sum of the readings, or of their squares, over each minute
+     * in the window.
+     */
+    private double sum(long now, boolean squares) {
+        int last = index(end - 1);
+        double lastValue = squares
+                ? (double) values[last] * values[last] : values[last];
+        double total = (squares ? closedSquares : closedSum)
+                + lastValue * (now + 1 - starts[last]);
+
+        // removes the part of the oldest step before the window
+        int oldest = index(first);
+        long before = now + 1 - window - starts[oldest];
+        if (before > 0) {
+            double oldestValue = squares ? (double) values[oldest]
+                    * values[oldest] : values[oldest];
+            total -= oldestValue * before;
+        }
+        return total;
+    }
+
+    /**
+     * Discards the oldest steps while they end before the window at the
+     * given minute begins.
+     */
+    private void evict(long now) {
+        long windowStart = now + 1 - window;
+        while (end - first > 1 && starts[index(first + 1)] <= windowStart) {
+            int oldest = index(first);
+            long duration = starts[index(first + 1)] - starts[oldest];
+            closedSum -= (double) values[oldest] * duration;
+            closedSquares -= (double) values[oldest] * values[oldest]
+                    * duration;
+            if (minQueue[index(minFirst)] == first) {
+                minFirst++;
+            }
+            if (maxQueue[index(maxFirst)] == first) {
+                maxFirst++;
+            }
+            first++;
+        }
+    }
+
+    /**
+     * Appends a step to the ring.
+     */
+    private void push(long start, int value) {
+        long sequence = end;
+        starts[index(sequence)] = start;
+        values[index(sequence)] = value;
+        end++;
+        enqueue(sequence);
+    }
+
+    /**
+     * Appends a step to the monotonic queues, dropping the steps it makes
+     * redundant.
+     */
+    private void enqueue(long sequence) {
+        int value = values[index(sequence)];
+        while (minEnd > minFirst
+                && values[index(minQueue[index(minEnd - 1)])] >= value) {
+            minEnd--;
+        }
+        minQueue[index(minEnd++)] = sequence;
+        while (maxEnd > maxFirst
+                && values[index(maxQueue[index(maxEnd - 1)])] <= value) {
+            maxEnd--;
+        }
+        maxQueue[index(maxEnd++)] = sequence;
+    }
+
+    /**
+     * Refills the monotonic queues from the steps in the ring, after the
+     * newest step's reading has been replaced.
+     */
+    private void rebuildQueues() {
+        minFirst = first;
+        minEnd = first;
+        maxFirst = first;
+        maxEnd = first;
+        for (long sequence = first; sequence < end; sequence++) {
+            enqueue(sequence);
+        }
+    }
+
+    /**
+     * Returns the position in the ring of the given sequence number.
+     */
+    private int index(long sequence) {
+        return (int) (sequence % starts.length);
+    }
+}
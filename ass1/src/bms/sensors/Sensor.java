@@ -13,5 +13,20 @@ public interface Sensor {
      * @return the current sensor reading observed by the sensor
      */
     int getCurrentReading();
+
+    /**
+     * Returns the type of this sensor, whose simple class name identifies
+     * the sensor in a room, e.g. NoiseSensor.class. A room holds at most one
+     * sensor of each type.
+     * <p>
+     * By default this is the sensor's own class. Sensors which stand in for
+     * another type, such as the views of a SensorStore, return the class
+     * they stand in for, so they are treated as that type throughout.
+     *
+     * @return the class of sensor this sensor is treated as
+     */
+    default Class<? extends Sensor> getSensorType() {
+        return getClass();
+    }
 }
 
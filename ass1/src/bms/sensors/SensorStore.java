@@ -0,0 +1,606 @@
+package bms.sensors;
+
+import bms.util.Checkpointable;
+import bms.util.ConcurrentTimedItem;
+import bms.util.TimedItemManager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar store of timed sensors, holding the state of every sensor in
+ * parallel primitive arrays instead of one object per sensor.
+ * <p>
+ * Each sensor is a row of the store. Its update frequency, position,
+ * current reading and the minutes until its next update are kept at the same
+ * index of separate arrays, and the readings of all sensors are concatenated
+ * into one shared array, in which identical readings are only stored once.
+ * The store is registered with a timed item manager as a single timed item,
+ * so ticking every sensor is one tight loop over primitive arrays.
+ * <p>
+ * Sensors in a store behave exactly like the equivalent TimedSensor
+ * subclasses. They are accessed through lightweight view objects, returned
+ * when a row is added, which implement HazardSensor and can be added to a
+ * room like any other sensor. Each view reports the class it stands in for
+ * as its sensor type, see Sensor.getSensorType(), so rooms and hazard
+ * evaluators treat a StoredOccupancySensor as an OccupancySensor, and so
+ * on.
+ */
+public class SensorStore implements ConcurrentTimedItem {
+    // initial number of rows allocated
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the number of rows in the store
+    private int size = 0;
+
+    // the number of times elapseOneMinute() has been called on the store
+    private int minute = 0;
+
+    // store minute at which each row was added
+    private int[] origin = new int[INITIAL_CAPACITY];
+
+    // minutes between reading updates of each row
+    private int[] frequency = new int[INITIAL_CAPACITY];
+
+    // minutes until the next reading update of each row
+    private int[] untilUpdate = new int[INITIAL_CAPACITY];
+
+    // index of each row's current reading within its own readings
+    private int[] position = new int[INITIAL_CAPACITY];
+
+    // current reading of each row
+    private int[] current = new int[INITIAL_CAPACITY];
+
+    // start of each row's readings in the shared readings array
+    private int[] offset = new int[INITIAL_CAPACITY];
+
+    // number of readings of each row
+    private int[] length = new int[INITIAL_CAPACITY];
+
+    // readings of all rows, one after another
+    private int[] readings = new int[INITIAL_CAPACITY];
+
+    // number of elements of the shared readings array in use
+    private int readingsUsed = 0;
+
+    // start of each distinct sequence of readings in the shared readings
+    // array, grouped by the hash of the readings
+    private Map<Integer, List<Integer>> traceOffsets = new HashMap<>();
+
+    /**
+     * Creates a new empty sensor store registered with the default timed item
+     * manager.
+     */
+    public SensorStore() {
+        this(TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new empty sensor store registered with the given timed item
+     * manager.
+     *
+     * @param manager the timed item manager which ticks this store
+     * @throws IllegalArgumentException if manager is null
+     */
+    public SensorStore(TimedItemManager manager)
+            throws IllegalArgumentException {
+        if (manager == null) {
+            throw new IllegalArgumentException();
+        }
+        manager.registerTimedItem(this);
+    }
+
+    /**
+     * Returns the number of sensors in this store.
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of readings held in the store's shared readings
+     * array. Readings identical to those of an earlier row are not stored
+     * again.
+     *
+     * @return number of readings stored
+     */
+    public int getReadingsStored() {
+        return readingsUsed;
+    }
+
+    /**
+     * Adds a carbon dioxide sensor to the store.
+     *
+     * @param sensorReadings  array of CO2 sensor readings in ppm
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue      ideal CO2 value in ppm
+     * @param variationLimit  acceptable range above and below ideal value
+     *                        in ppm
+     * @return a view of the new sensor
+     * @throws IllegalArgumentException if the arguments are invalid for a
+     *                                  CarbonDioxideSensor
+     */
+    public StoredCarbonDioxideSensor addCarbonDioxideSensor(
+            int[] sensorReadings, int updateFrequency, int idealValue,
+            int variationLimit) throws IllegalArgumentException {
+        if (idealValue <= 0 || variationLimit <= 0 ||
+                (idealValue - variationLimit) < 0) {
+            throw new IllegalArgumentException();
+        }
+        return new StoredCarbonDioxideSensor(this,
+                addRow(sensorReadings, updateFrequency), idealValue,
+                variationLimit);
+    }
+
+    /**
+     * Adds a noise sensor to the store.
+     *
+     * @param sensorReadings  array of noise sensor readings in decibels
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @return a view of the new sensor
+     * @throws IllegalArgumentException if the arguments are invalid for a
+     *                                  NoiseSensor
+     */
+    public StoredNoiseSensor addNoiseSensor(int[] sensorReadings,
+            int updateFrequency) throws IllegalArgumentException {
+        return new StoredNoiseSensor(this,
+                addRow(sensorReadings, updateFrequency));
+    }
+
+    /**
+     * Adds an occupancy sensor to the store.
+     *
+     * @param sensorReadings  a non-empty array of sensor readings
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity        maximum allowable number of people in the room
+     * @return a view of the new sensor
+     * @throws IllegalArgumentException if the arguments are invalid for an
+     *                                  OccupancySensor
+     */
+    public StoredOccupancySensor addOccupancySensor(int[] sensorReadings,
+            int updateFrequency, int capacity)
+            throws IllegalArgumentException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        return new StoredOccupancySensor(this,
+                addRow(sensorReadings, updateFrequency), capacity);
+    }
+
+    /**
+     * Adds a temperature sensor, updating every minute, to the store.
+     *
+     * @param sensorReadings a non-empty array of sensor readings
+     * @return a view of the new sensor
+     * @throws IllegalArgumentException if the readings are invalid for a
+     *                                  TemperatureSensor
+     */
+    public StoredTemperatureSensor addTemperatureSensor(int[] sensorReadings)
+            throws IllegalArgumentException {
+        return new StoredTemperatureSensor(this, addRow(sensorReadings, 1));
+    }
+
+    /**
+     * Returns the current reading of the given row.
+     *
+     * @param row index of the sensor in this store
+     * @return the sensor's current reading
+     */
+    public int getCurrentReading(int row) {
+        return current[row];
+    }
+
+    /**
+     * Returns the number of minutes elapsed since the given row was added.
+     *
+     * @param row index of the sensor in this store
+     * @return the sensor's time elapsed in minutes
+     */
+    public int getTimeElapsed(int row) {
+        return minute - origin[row];
+    }
+
+    /**
+     * Returns the update frequency of the given row.
+     *
+     * @param row index of the sensor in this store
+     * @return the sensor's update frequency in minutes
+     */
+    public int getUpdateFrequency(int row) {
+        return frequency[row];
+    }
+
+    /**
+     * Advances every sensor in the store by one minute, in the same way as
+     * TimedSensor.elapseOneMinute().
+     */
+    @Override
+    public void elapseOneMinute() {
+        minute++;
+        for (int row = 0; row < size; row++) {
+            if (--untilUpdate[row] == 0) {
+                untilUpdate[row] = frequency[row];
+                int next = position[row] + 1;
+                if (next == length[row]) {
+                    next = 0;
+                }
+                position[row] = next;
+                current[row] = readings[offset[row] + next];
+            }
+        }
+    }
+
+    /**
+     * Advances every sensor in the store by the given number of minutes,
+     * computing each row's new position directly.
+     *
+     * @param minutes the number of minutes to elapse
+     * @throws IllegalArgumentException if minutes is less than zero, or the
+     *                                  store's clock would no longer fit in
+     *                                  an int
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0 || minutes > Integer.MAX_VALUE - minute) {
+            throw new IllegalArgumentException();
+        }
+        for (int row = 0; row < size; row++) {
+            long start = minute - origin[row];
+            long end = start + minutes;
+            long updates = end / frequency[row] - start / frequency[row];
+            int next = (int) ((position[row] + updates % length[row])
+                    % length[row]);
+            position[row] = next;
+            current[row] = readings[offset[row] + next];
+            untilUpdate[row] = frequency[row] - (int) (end % frequency[row]);
+        }
+        minute += (int) minutes;
+    }
+
+    /**
+     * Appends a row for a sensor with the given readings and update
+     * frequency.
+     *
+     * @return the index of the new row
+     */
+    private int addRow(int[] sensorReadings, int updateFrequency)
+            throws IllegalArgumentException {
+        TimedSensor.checkReadings(sensorReadings, updateFrequency);
+        if (size == frequency.length) {
+            int capacity = size * 2;
+            origin = Arrays.copyOf(origin, capacity);
+            frequency = Arrays.copyOf(frequency, capacity);
+            untilUpdate = Arrays.copyOf(untilUpdate, capacity);
+            position = Arrays.copyOf(position, capacity);
+            current = Arrays.copyOf(current, capacity);
+            offset = Arrays.copyOf(offset, capacity);
+            length = Arrays.copyOf(length, capacity);
+        }
+        int hash = Arrays.hashCode(sensorReadings);
+        int traceOffset = findReadings(sensorReadings, hash);
+        if (traceOffset < 0) {
+            if (readingsUsed + sensorReadings.length > readings.length) {
+                readings = Arrays.copyOf(readings, Math.max(
+                        readings.length * 2,
+                        readingsUsed + sensorReadings.length));
+            }
+            System.arraycopy(sensorReadings, 0, readings, readingsUsed,
+                    sensorReadings.length);
+            traceOffset = readingsUsed;
+            List<Integer> offsets = traceOffsets.get(hash);
+            if (offsets == null) {
+                offsets = new ArrayList<>(1);
+                traceOffsets.put(hash, offsets);
+            }
+            offsets.add(traceOffset);
+            readingsUsed += sensorReadings.length;
+        }
+
+        int row = size;
+        origin[row] = minute;
+        frequency[row] = updateFrequency;
+        untilUpdate[row] = updateFrequency;
+        position[row] = 0;
+        current[row] = sensorReadings[0];
+        offset[row] = traceOffset;
+        length[row] = sensorReadings.length;
+        size++;
+        return row;
+    }
+
+    /**
+     * Returns the start of the given readings in the shared readings array,
+     * if they have already been added for another row.
+     *
+     * @return offset of the readings; -1 if they are not in the store
+     */
+    private int findReadings(int[] sensorReadings, int hash) {
+        List<Integer> offsets = traceOffsets.get(hash);
+        if (offsets == null) {
+            return -1;
+        }
+        for (int start : offsets) {
+            if (start + sensorReadings.length > readingsUsed) {
+                continue;
+            }
+            int i = 0;
+            while (i < sensorReadings.length
+                    && readings[start + i] == sensorReadings[i]) {
+                i++;
+            }
+            if (i == sensorReadings.length) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the given row to the given time elapsed and position, as if it
+     * had been added to the store that many minutes ago.
+     */
+    private void restoreRow(int row, int elapsed, int newPosition)
+            throws IOException {
+        if (elapsed < 0 || newPosition < 0 || newPosition >= length[row]) {
+            throw new IOException();
+        }
+        origin[row] = minute - elapsed;
+        position[row] = newPosition;
+        current[row] = readings[offset[row] + newPosition];
+        untilUpdate[row] = frequency[row] - (elapsed % frequency[row]);
+    }
+
+    /**
+     * Returns the string representation of a row, in the same format as
+     * TimedSensor.toString().
+     */
+    private String rowToString(int row) {
+        StringBuilder commaSeparated = new StringBuilder();
+        for (int i = 0; i < length[row]; i++) {
+            if (i > 0) {
+                commaSeparated.append(',');
+            }
+            commaSeparated.append(readings[offset[row] + i]);
+        }
+        return String.format("TimedSensor: freq=%d, readings=%s",
+                frequency[row], commaSeparated);
+    }
+
+    /**
+     * A lightweight view of one row of a sensor store.
+     */
+    public abstract static class StoredSensor implements HazardSensor,
+            Checkpointable {
+        // the store holding this sensor's state
+        private final SensorStore store;
+
+        // index of this sensor's row in the store
+        private final int row;
+
+        StoredSensor(SensorStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        /**
+         * Returns the index of this sensor's row in its store.
+         *
+         * @return row index
+         */
+        public int getRow() {
+            return row;
+        }
+
+        @Override
+        public int getCurrentReading() {
+            return store.current[row];
+        }
+
+        /**
+         * Returns the number of minutes that have elapsed since the sensor
+         * was added to its store.
+         *
+         * @return the sensor's time elapsed in minutes
+         */
+        public int getTimeElapsed() {
+            return store.getTimeElapsed(row);
+        }
+
+        /**
+         * Returns the number of minutes in between updates to the current
+         * sensor reading.
+         *
+         * @return the sensor's update frequency in minutes
+         */
+        public int getUpdateFrequency() {
+            return store.frequency[row];
+        }
+
+        @Override
+        public void saveState(DataOutput out) throws IOException {
+            out.writeInt(getTimeElapsed());
+            out.writeInt(store.position[row]);
+        }
+
+        @Override
+        public void restoreState(DataInput in) throws IOException {
+            int elapsed = in.readInt();
+            int position = in.readInt();
+            store.restoreRow(row, elapsed, position);
+        }
+
+        @Override
+        public String toString() {
+            return store.rowToString(row);
+        }
+    }
+
+    /**
+     * A view of a carbon dioxide sensor in a sensor store.
+     *
+     * @see CarbonDioxideSensor
+     */
+    public static class StoredCarbonDioxideSensor extends StoredSensor {
+        private final int idealValue;
+        private final int variationLimit;
+
+        StoredCarbonDioxideSensor(SensorStore store, int row, int idealValue,
+                int variationLimit) {
+            super(store, row);
+            this.idealValue = idealValue;
+            this.variationLimit = variationLimit;
+        }
+
+        /**
+         * Returns the sensor's CO2 variation limit.
+         *
+         * @return variation limit in ppm
+         */
+        public int getVariationLimit() {
+            return variationLimit;
+        }
+
+        /**
+         * Returns the sensor's ideal CO2 value.
+         *
+         * @return ideal value in ppm
+         */
+        public int getIdealValue() {
+            return idealValue;
+        }
+
+        @Override
+        public int getHazardLevel() {
+            return CarbonDioxideSensor.calculateHazardLevel(
+                    getCurrentReading());
+        }
+
+        @Override
+        public Class<? extends Sensor> getSensorType() {
+            return CarbonDioxideSensor.class;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + String.format(", type=" +
+                    "CarbonDioxideSensor, idealPPM=%d, varLimit=%d",
+                    idealValue, variationLimit);
+        }
+    }
+
+    /**
+     * A view of a noise sensor in a sensor store.
+     *
+     * @see NoiseSensor
+     */
+    public static class StoredNoiseSensor extends StoredSensor {
+
+        StoredNoiseSensor(SensorStore store, int row) {
+            super(store, row);
+        }
+
+        /**
+         * Calculates the relative loudness level compared to a reference of
+         * 70.0 decibels.
+         *
+         * @return relative loudness of current reading to 70dB
+         * @see NoiseSensor#calculateRelativeLoudness()
+         */
+        public double calculateRelativeLoudness() {
+            return NoiseSensor.calculateRelativeLoudness(getCurrentReading());
+        }
+
+        @Override
+        public int getHazardLevel() {
+            return NoiseSensor.calculateHazardLevel(getCurrentReading());
+        }
+
+        @Override
+        public Class<? extends Sensor> getSensorType() {
+            return NoiseSensor.class;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + ", type=NoiseSensor";
+        }
+    }
+
+    /**
+     * A view of an occupancy sensor in a sensor store.
+     *
+     * @see OccupancySensor
+     */
+    public static class StoredOccupancySensor extends StoredSensor {
+        private final int capacity;
+
+        StoredOccupancySensor(SensorStore store, int row, int capacity) {
+            super(store, row);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Returns the capacity of this occupancy sensor.
+         *
+         * @return capacity
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        @Override
+        public int getHazardLevel() {
+            return OccupancySensor.calculateHazardLevel(getCurrentReading(),
+                    capacity);
+        }
+
+        @Override
+        public Class<? extends Sensor> getSensorType() {
+            return OccupancySensor.class;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + String.format(", type=OccupancySensor, "
+                    + "capacity=%d", capacity);
+        }
+    }
+
+    /**
+     * A view of a temperature sensor in a sensor store.
+     *
+     * @see TemperatureSensor
+     */
+    public static class StoredTemperatureSensor extends StoredSensor {
+
+        StoredTemperatureSensor(SensorStore store, int row) {
+            super(store, row);
+        }
+
+        @Override
+        public int getHazardLevel() {
+            return TemperatureSensor.calculateHazardLevel(getCurrentReading());
+        }
+
+        @Override
+        public Class<? extends Sensor> getSensorType() {
+            return TemperatureSensor.class;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + ", type=TemperatureSensor";
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package bms.sensors;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry giving every type of sensor a small integer id, so that sensors
+ * can be kept in fixed slots indexed by type, see Room.
+ * <p>
+ * A sensor's type is its simple class name, as returned by
+ * Class.getSimpleName(). Ids are handed out from 0 upwards the first time
+ * each type is seen, and never change while the program runs.
+ */
+public final class SensorTypes {
+    // ids of every type seen, by simple class name
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // ids of every class seen, so each class's name is only looked up once
+    private static final ClassValue<Integer> classIds =
+            new ClassValue<Integer>() {
+                @Override
+                protected Integer computeValue(Class<?> type) {
+                    return register(type.getSimpleName());
+                }
+            };
+
+    // not instantiable
+    private SensorTypes() {
+    }
+
+    /**
+     * Returns the id of the type of the given class of sensor, registering
+     * the type if it has not been seen before.
+     *
+     * @param type a class of sensor
+     * @return id of the sensor type, at least 0
+     */
+    public static int idOf(Class<?> type) {
+        return classIds.get(type);
+    }
+
+    /**
+     * Returns the id of the sensor type with the given name, if the type has
+     * been seen before.
+     *
+     * @param name the simple class name of the sensor type,
+     *             e.g. "NoiseSensor"
+     * @return id of the sensor type; -1 if no such type has been registered,
+     * or name is null
+     */
+    public static int find(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the number of sensor types registered so far. Every id is less
+     * than this number.
+     *
+     * @return number of registered sensor types
+     */
+    public static int count() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the id of the type with the given name, handing out the next
+     * id if it is new.
+     */
+    private static synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.size();
+            ids.put(name, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,286 @@
+package bms.sensors;
+
+import bms.util.ConcurrentTimedItem;
+import bms.util.TimedItemManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A hazard sensor whose readings are pushed to it as they arrive, e.g. from a
+ * building gateway, rather than cycled through from a fixed list.
+ * <p>
+ * Readings are passed from a single ingest thread to the thread ticking the
+ * sensor through a lock-free single-producer, single-consumer ring buffer.
+ * The ingest thread calls offer(int), which never blocks. Every minute the
+ * sensor takes the latest reading offered since the previous minute as its
+ * current reading, and discards any older ones. If no reading arrived, the
+ * current reading is kept.
+ * <p>
+ * Only one thread may call offer(int) at a time. The current reading and
+ * hazard level may be read from any thread; both are published together, so
+ * a reader never sees a reading with the hazard level of another.
+ * <p>
+ * A streaming sensor feeds the readings of some type of sensor, e.g. a
+ * streaming occupancy feed, and reports that type as its own, see
+ * getSensorType(). Rooms and hazard evaluators treat it as a sensor of that
+ * type, so a room can hold one streaming sensor of each type.
+ */
+public class StreamingSensor implements HazardSensor, ConcurrentTimedItem {
+    // readings offered but not yet taken; the length is a power of two
+    private final int[] buffer;
+
+    // mask mapping a sequence number to its index in buffer
+    private final int mask;
+
+    // sequence number of the next reading to be offered; written only by the
+    // ingest thread
+    private final AtomicLong tail = new AtomicLong();
+
+    // sequence number of the next reading to be taken; written only by the
+    // ticking thread
+    private final AtomicLong head = new AtomicLong();
+
+    // the ingest thread's last read of head, so it only has to read the
+    // shared counter again when the buffer looks full
+    private long cachedHead = 0;
+
+    // the number of readings offered while the buffer was full
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    // maps a reading to its hazard level
+    private final IntUnaryOperator hazardFunction;
+
+    // the type of sensor whose readings are streamed
+    private final Class<? extends HazardSensor> sensorType;
+
+    // the manager this sensor is registered with
+    private final TimedItemManager manager;
+
+    // the current reading and its hazard level
+    private volatile Sample current;
+
+    /**
+     * Creates a new streaming sensor registered with the default timed item
+     * manager.
+     *
+     * @param sensorType     the type of sensor whose readings are streamed,
+     *                       e.g. OccupancySensor.class
+     * @param capacity       the least number of readings the buffer can hold
+     *                       between two ticks
+     * @param initialReading the current reading until the first reading
+     *                       arrives
+     * @param hazardFunction maps a reading of this sensor to its hazard
+     *                       level, 0 to 100
+     * @throws IllegalArgumentException if sensorType is null, capacity is
+     *                                  < 1 or > 2^30, initialReading is less
+     *                                  than zero, or hazardFunction is null
+     */
+    public StreamingSensor(Class<? extends HazardSensor> sensorType,
+            int capacity, int initialReading, IntUnaryOperator hazardFunction)
+            throws IllegalArgumentException {
+        this(sensorType, capacity, initialReading, hazardFunction,
+                TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new streaming sensor registered with the given timed item
+     * manager.
+     *
+     * @param sensorType     the type of sensor whose readings are streamed,
+     *                       e.g. OccupancySensor.class
+     * @param capacity       the least number of readings the buffer can hold
+     *                       between two ticks
+     * @param initialReading the current reading until the first reading
+     *                       arrives
+     * @param hazardFunction maps a reading of this sensor to its hazard
+     *                       level, 0 to 100
+     * @param manager        the timed item manager to register with
+     * @throws IllegalArgumentException if sensorType is null, capacity is
+     *                                  < 1 or > 2^30, initialReading is less
+     *                                  than zero, hazardFunction is null or
+     *                                  manager is null
+     */
+    public StreamingSensor(Class<? extends HazardSensor> sensorType,
+            int capacity, int initialReading, IntUnaryOperator hazardFunction,
+            TimedItemManager manager) throws IllegalArgumentException {
+        if (sensorType == null || capacity < 1 || capacity > (1 << 30)
+                || initialReading < 0 || hazardFunction == null
+                || manager == null) {
+            throw new IllegalArgumentException();
+        }
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity) {
+            length <<= 1;
+        }
+        this.buffer = new int[length];
+        this.mask = length - 1;
+        this.sensorType = sensorType;
+        this.hazardFunction = hazardFunction;
+        this.current = new Sample(initialReading,
+                hazardFunction.applyAsInt(initialReading));
+        this.manager = manager;
+        manager.registerTimedItem(this);
+    }
+
+    /**
+     * Offers a new reading to the sensor. It becomes the current reading at
+     * the next minute, unless a later reading is offered before then.
+     * <p>
+     * Must only be called from one thread at a time. Never blocks; if the
+     * buffer is full the reading is dropped.
+     *
+     * @param reading the new reading
+     * @return true if the reading was accepted, false if it was dropped
+     * @throws IllegalArgumentException if reading is less than zero
+     */
+    public boolean offer(int reading) throws IllegalArgumentException {
+        if (reading < 0) {
+            throw new IllegalArgumentException();
+        }
+        long sequence = tail.get();
+        if (sequence - cachedHead >= buffer.length) {
+            cachedHead = head.get();
+            if (sequence - cachedHead >= buffer.length) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+        }
+        buffer[(int) sequence & mask] = reading;
+
+        // publishes the reading to the ticking thread
+        tail.lazySet(sequence + 1);
+        return true;
+    }
+
+    /**
+     * Takes the latest reading offered since the previous minute, if any, as
+     * the current reading.
+     */
+    @Override
+    public void elapseOneMinute() {
+        long end = tail.get();
+        long start = head.get();
+        if (end == start) {
+            return;
+        }
+        int reading = buffer[(int) (end - 1) & mask];
+
+        // hands the taken slots back to the ingest thread
+        head.lazySet(end);
+        if (reading != current.reading) {
+            current = new Sample(reading, hazardFunction.applyAsInt(reading));
+        }
+    }
+
+    /**
+     * Takes the latest reading offered, as only the most recent reading is
+     * kept however many minutes elapse.
+     *
+     * @param minutes the number of minutes to elapse
+     * @throws IllegalArgumentException if minutes is less than zero
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (minutes > 0) {
+            elapseOneMinute();
+        }
+    }
+
+    /**
+     * Returns the current reading of this sensor.
+     *
+     * @return the latest reading taken at a minute boundary
+     */
+    @Override
+    public int getCurrentReading() {
+        return current.reading;
+    }
+
+    /**
+     * Returns the hazard level of the current reading, as given by the
+     * sensor's hazard function.
+     *
+     * @return level of hazard at sensor location, 0 to 100
+     */
+    @Override
+    public int getHazardLevel() {
+        return current.hazardLevel;
+    }
+
+    /**
+     * Returns the type of sensor whose readings are streamed, given when
+     * this sensor was created.
+     *
+     * @return the class of sensor this sensor is treated as
+     */
+    @Override
+    public Class<? extends HazardSensor> getSensorType() {
+        return sensorType;
+    }
+
+    /**
+     * Returns the number of readings offered but not yet taken.
+     *
+     * @return number of pending readings
+     */
+    public int getPendingCount() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Returns the number of readings the buffer can hold between two ticks.
+     *
+     * @return capacity of the ring buffer
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns the number of readings dropped because the buffer was full.
+     *
+     * @return number of dropped readings
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the timed item manager this sensor is registered with.
+     *
+     * @return timed item manager of this sensor
+     */
+    public TimedItemManager getTimedItemManager() {
+        return manager;
+    }
+
+    /**
+     * Returns the human-readable string representation of this streaming
+     * sensor.
+     *
+     * @return string representation of this sensor
+     */
+    @Override
+    public String toString() {
+        return String.format("StreamingSensor: capacity=%d, reading=%d, "
+                + "type=%s", buffer.length, current.reading,
+                sensorType.getSimpleName());
+    }
+
+    /**
+     * A reading together with its hazard level.
+     */
+    private static final class Sample {
+        private final int reading;
+        private final int hazardLevel;
+
+        private Sample(int reading, int hazardLevel) {
+            this.reading = reading;
+            this.hazardLevel = hazardLevel;
+        }
+    }
+}
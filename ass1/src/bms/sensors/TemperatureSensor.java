@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import bms.util.TimedItemManager;
+
 /**
  * A sensor that measures ambient temperature in a room.
  */
@@ -18,6 +20,29 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor {
         super(sensorReadings, 1);
     }
 
+    /**
+     * Creates a new temperature sensor registered with the given timed item
+     * manager instead of the default one.
+     *
+     * @param sensorReadings a non-empty array of sensor readings
+     * @param manager        the timed item manager which ticks this sensor
+     */
+    public TemperatureSensor(int[] sensorReadings, TimedItemManager manager) {
+        super(sensorReadings, 1, manager);
+    }
+
+    /**
+     * Creates a new temperature sensor iterating through the given reading
+     * trace, registered with the given timed item manager.
+     *
+     * @param sensorReadings a non-empty trace of sensor readings
+     * @param manager        the timed item manager which ticks this sensor
+     */
+    public TemperatureSensor(ReadingTrace sensorReadings,
+            TimedItemManager manager) {
+        super(sensorReadings, 1, manager);
+    }
+
     /**
      * Returns the hazard level as detected by this sensor.
      * <p>
@@ -30,12 +55,70 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor {
      */
     @Override
     public int getHazardLevel() {
-        if (this.getCurrentReading() >= 68) {
+        return getMemoisedHazardLevel();
+    }
+
+    @Override
+    protected int computeHazardLevel(int reading) {
+        return calculateHazardLevel(reading);
+    }
+
+    /**
+     * Returns the hazard level of the given temperature reading.
+     *
+     * @param reading a temperature reading in degrees
+     * @return hazard level of the reading, 0 to 100
+     * @see #getHazardLevel()
+     */
+    static int calculateHazardLevel(int reading) {
+        if (reading >= 68) {
             return 100;
         }
         return 0;
     }
 
+    /**
+     * Returns the hazard level of each of the given temperature readings, as
+     * calculated for a single reading by getHazardLevel().
+     * <p>
+     * This runs in one pass over the readings without creating any sensors,
+     * e.g. to backtest hazard thresholds against recorded readings.
+     *
+     * @param readings temperature readings in degrees
+     * @return new array holding the hazard level of each reading, 0 to 100
+     * @throws IllegalArgumentException if readings is null, or any reading
+     *                                  is less than zero
+     */
+    public static int[] calculateHazardLevels(int[] readings)
+            throws IllegalArgumentException {
+        if (readings == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] levels = new int[readings.length];
+        calculateHazardLevels(readings, levels);
+        return levels;
+    }
+
+    /**
+     * Stores the hazard level of each of the given temperature readings in the
+     * given array, see calculateHazardLevels(int[]).
+     *
+     * @param readings temperature readings in degrees
+     * @param levels   array to store the hazard levels in, at least as long
+     *                 as readings
+     * @throws IllegalArgumentException if either array is null, levels is
+     *                                  shorter than readings, or any reading
+     *                                  is less than zero
+     */
+    public static void calculateHazardLevels(int[] readings,
+            int[] levels) throws IllegalArgumentException {
+        HazardTable.checkBulk(readings, levels);
+        for (int i = 0; i < readings.length; i++) {
+            // the sign bit of 67 - reading is set from 68 degrees upwards
+            levels[i] = ((67 - readings[i]) >>> 31) * 100;
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this temperature
      * sensor.
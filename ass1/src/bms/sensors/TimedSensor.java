@@ -1,25 +1,80 @@
 package bms.sensors;
 
-import bms.util.TimedItem;
+import bms.util.Checkpointable;
 import bms.util.TimedItemManager;
+import bms.util.TimingWheel;
+import bms.util.WheelTimedItem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
  * An abstract class to represent a sensor that iterates through observed values
  * on a timer.
+ * <p>
+ * A timed sensor is either ticked every minute through elapseOneMinute(), or
+ * scheduled on a TimingWheel, in which case it is only woken on the minutes
+ * its reading changes and its elapsed time is derived from the wheel's clock.
+ * <p>
+ * Subclasses which are hazard sensors compute their hazard level by
+ * overriding computeHazardLevel(int). The result is memoised by
+ * getMemoisedHazardLevel() until the current reading changes, so repeated
+ * polling between updates costs a field read. Other subclasses need not
+ * override it.
+ * <p>
+ * Rolling statistics of the readings can be tracked over any number of
+ * windows, see getStatistics(int). They are only updated when the reading
+ * changes.
+ * <p>
+ * Listeners can be notified of every change of the reading, or only of
+ * changes which take the hazard level across a threshold, see
+ * addReadingListener(ReadingListener). With no listeners a change costs a
+ * length check and allocates nothing.
  */
-public abstract class TimedSensor implements TimedItem, Sensor {
+public abstract class TimedSensor implements WheelTimedItem, Sensor,
+        Checkpointable {
     private int updateFrequency;
-    private int[] sensorReadings;
-    private int currentReading;
+    private ReadingTrace sensorReadings;
+    private volatile int currentReading;
+
+    // the last reading whose hazard level was computed, in the high 32 bits,
+    // and that level in the low 32 bits, so both are read and written at
+    // once; the level is negative until one is computed
+    private volatile long hazardMemo = NO_HAZARD_MEMO;
+
+    // hazardMemo before any level has been computed
+    private static final long NO_HAZARD_MEMO = -1L;
 
     // the position of currentReading
     private int currentPosition;
 
-    // the number of times elapseOneMinute() has been called
+    // the number of times elapseOneMinute() has been called, plus the time
+    // spent on any wheel this sensor has since been detached from
     private int timeElapsed;
 
+    // the wheel this sensor is scheduled on; null when ticked every minute
+    private TimingWheel wheel;
+
+    // the wheel's minute at the time this sensor was attached to it
+    private long wheelOrigin;
+
+    // the manager this sensor is registered with
+    private TimedItemManager manager;
+
+    // statistics tracked for this sensor, one per window; replaced, never
+    // modified, when statistics are added
+    private volatile RollingStatistics[] statistics = new RollingStatistics[0];
+
+    // listeners notified of reading changes; replaced, never modified, when
+    // listeners are added or removed
+    private volatile ReadingListener[] listeners = NO_LISTENERS;
+
+    // shared by every sensor without listeners
+    private static final ReadingListener[] NO_LISTENERS =
+            new ReadingListener[0];
+
     /**
      * Creates a new timed sensor, using the provided list of sensor readings.
      * These represent "raw" data values, and have different meanings depending
@@ -36,6 +91,10 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      * <p>
      * The sensor should be registered as a timed item, see
      * TimedItemManager.registerTimedItem(TimedItem).
+     * <p>
+     * The readings are interned, see ReadingTracePool.intern(int[]), so
+     * sensors with identical readings share one immutable copy of them, and
+     * later changes to the given array do not affect the sensor.
      *
      * @param sensorReadings  a non-empty array of sensor readings
      * @param updateFrequency indicates how often the sensor readings updates,
@@ -48,6 +107,83 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      */
     public TimedSensor(int[] sensorReadings, int updateFrequency) throws
             IllegalArgumentException {
+        this(sensorReadings, updateFrequency, TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new timed sensor, using the provided list of sensor readings,
+     * registered with the given timed item manager instead of the default
+     * one.
+     *
+     * @param sensorReadings  a non-empty array of sensor readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @param manager         the timed item manager which ticks this sensor
+     * @throws IllegalArgumentException if updateFrequency is < 1 or > 5; or
+     *                                  if sensorReadings is null;
+     *                                  if sensorReadings is empty;
+     *                                  if any value in sensorReadings is
+     *                                  less than zero;
+     *                                  or if manager is null
+     * @see #TimedSensor(int[], int)
+     */
+    public TimedSensor(int[] sensorReadings, int updateFrequency,
+            TimedItemManager manager) throws IllegalArgumentException {
+        this(internReadings(sensorReadings, updateFrequency),
+                updateFrequency, manager);
+    }
+
+    /**
+     * Creates a new timed sensor iterating through the given reading trace,
+     * registered with the given timed item manager.
+     * <p>
+     * The trace is used as given rather than interned, so that long recorded
+     * traces can be kept in a compact form, e.g. a CompressedReadingTrace, or
+     * off the heap, e.g. a MappedReadingTrace.
+     *
+     * @param sensorReadings  a non-empty trace of sensor readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @param manager         the timed item manager which ticks this sensor
+     * @throws IllegalArgumentException if updateFrequency is < 1 or > 5; or
+     *                                  if sensorReadings is null;
+     *                                  if sensorReadings is empty;
+     *                                  if any value in sensorReadings is
+     *                                  less than zero;
+     *                                  or if manager is null
+     */
+    public TimedSensor(ReadingTrace sensorReadings, int updateFrequency,
+            TimedItemManager manager) throws IllegalArgumentException {
+        if (manager == null || sensorReadings == null
+                || sensorReadings.length() < 1
+                || updateFrequency > 5 || updateFrequency < 1
+                || sensorReadings.getMinimum() < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.updateFrequency = updateFrequency;
+        this.sensorReadings = sensorReadings;
+        this.currentPosition = 0;
+        this.currentReading = this.sensorReadings.get(currentPosition);
+        this.timeElapsed = 0;
+        this.manager = manager;
+        manager.registerTimedItem(this);
+    }
+
+    /**
+     * Checks the given sensor readings and update frequency are valid for a
+     * timed sensor.
+     *
+     * @param sensorReadings  a non-empty array of sensor readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @throws IllegalArgumentException if updateFrequency is < 1 or > 5; or
+     *                                  if sensorReadings is null;
+     *                                  if sensorReadings is empty;
+     *                                  or if any value in sensorReadings is
+     *                                  less than zero
+     */
+    static void checkReadings(int[] sensorReadings, int updateFrequency)
+            throws IllegalArgumentException {
         if (updateFrequency > 5
                 || updateFrequency < 1 || sensorReadings == null
                 || sensorReadings.length < 1) {
@@ -58,12 +194,25 @@ public abstract class TimedSensor implements TimedItem, Sensor {
                 throw new IllegalArgumentException();
             }
         }
-        this.updateFrequency = updateFrequency;
-        this.sensorReadings = sensorReadings;
-        this.currentPosition = 0;
-        this.currentReading = sensorReadings[currentPosition];
-        this.timeElapsed = 0;
-        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Checks the given sensor readings and update frequency, and returns the
+     * interned trace of the readings.
+     */
+    private static ReadingTrace internReadings(int[] sensorReadings,
+            int updateFrequency) throws IllegalArgumentException {
+        checkReadings(sensorReadings, updateFrequency);
+        return ReadingTracePool.intern(sensorReadings);
+    }
+
+    /**
+     * Returns the timed item manager this sensor is registered with.
+     *
+     * @return the manager which ticks this sensor
+     */
+    public TimedItemManager getTimedItemManager() {
+        return manager;
     }
 
     @Override
@@ -79,7 +228,10 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      * @return the sensor's time elapsed in minutes
      */
     public int getTimeElapsed() {
-        return timeElapsed;
+        if (wheel == null) {
+            return timeElapsed;
+        }
+        return timeElapsed + (int) (wheel.getCurrentMinute() - wheelOrigin);
     }
 
     /**
@@ -108,14 +260,291 @@ public abstract class TimedSensor implements TimedItem, Sensor {
         timeElapsed++;
         int remainder = (this.getTimeElapsed()) % (this.getUpdateFrequency());
         if (remainder == 0 && timeElapsed != 0) {
+            advanceReading();
+        }
+    }
+
+    /**
+     * Increments the time elapsed by the given number of minutes, moving the
+     * current sensor reading forward by the number of updates that fall
+     * within that time.
+     * <p>
+     * The new position is computed directly, so this takes constant time
+     * regardless of the number of minutes.
+     *
+     * @param minutes the number of minutes to elapse
+     * @throws IllegalArgumentException if minutes is less than zero, or the
+     *                                  sensor's time elapsed would no longer
+     *                                  fit in an int
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0 || minutes > Integer.MAX_VALUE - timeElapsed) {
+            throw new IllegalArgumentException();
+        }
+        long start = timeElapsed;
+        long end = start + minutes;
+        long updates = end / updateFrequency - start / updateFrequency;
+        int length = sensorReadings.length();
+        timeElapsed = (int) end;
+        moveTo((int) ((currentPosition + updates % length) % length));
+    }
+
+    @Override
+    public int attachWheel(TimingWheel wheel) {
+        this.wheel = wheel;
+        this.wheelOrigin = wheel.getCurrentMinute();
+        return updateFrequency - (timeElapsed % updateFrequency);
+    }
+
+    @Override
+    public void detachWheel() {
+        timeElapsed = getTimeElapsed();
+        wheel = null;
+    }
+
+    /**
+     * Writes the sensor's time elapsed and position in its readings.
+     *
+     * @param out the output to write the state to
+     * @throws IOException if an IOException is encountered when writing
+     */
+    @Override
+    public void saveState(DataOutput out) throws IOException {
+        out.writeInt(getTimeElapsed());
+        out.writeInt(currentPosition);
+    }
+
+    /**
+     * Restores the sensor's time elapsed and position in its readings. If
+     * the sensor is scheduled on a timing wheel, it is rescheduled to match
+     * the restored time.
+     *
+     * @param in the input to read the state from
+     * @throws IOException if an IOException is encountered when reading, or
+     *                     the position is outside the sensor's readings
+     */
+    @Override
+    public void restoreState(DataInput in) throws IOException {
+        int elapsed = in.readInt();
+        int position = in.readInt();
+        if (elapsed < 0 || position < 0
+                || position >= sensorReadings.length()) {
+            throw new IOException();
+        }
+        TimingWheel attached = wheel;
+        if (attached != null) {
+            attached.unschedule(this);
+        }
+        timeElapsed = elapsed;
+        moveTo(position);
+        if (attached != null) {
+            attached.schedule(this);
+        }
+        RollingStatistics[] tracked = statistics;
+        for (int i = 0; i < tracked.length; i++) {
+            tracked[i].reset(currentReading);
+        }
+    }
+
+    /**
+     * Moves the current sensor reading to the next value in the array, as the
+     * wheel only wakes this sensor on the minutes its reading changes.
+     */
+    @Override
+    public void elapseUpdate() {
+        advanceReading();
+    }
+
+    /**
+     * Moves to the next sensor reading, wrapping around at the end of the
+     * array.
+     */
+    private void advanceReading() {
+
+        // wraps around when the position is the last one.
+        if (currentPosition == (sensorReadings.length() - 1)) {
+            moveTo(0);
+        } else {
+            moveTo(currentPosition + 1);
+        }
+    }
 
-            // wraps around when the position is the last one.
-            if (currentPosition == (sensorReadings.length - 1)) {
-                currentPosition = 0;
-            } else {
-                currentPosition += 1;
+    /**
+     * Moves to the given position in the readings, forgetting the memoised
+     * hazard level if the reading changes.
+     */
+    private void moveTo(int position) {
+        currentPosition = position;
+        int reading = sensorReadings.get(position);
+        if (reading != currentReading) {
+            int previous = currentReading;
+            currentReading = reading;
+            RollingStatistics[] tracked = statistics;
+            for (int i = 0; i < tracked.length; i++) {
+                tracked[i].record(reading);
+            }
+            ReadingListener[] notified = listeners;
+            for (int i = 0; i < notified.length; i++) {
+                notified[i].readingChanged(this, previous);
+            }
+        }
+    }
+
+    /**
+     * Adds a listener to be notified every time the current reading of this
+     * sensor changes, whether by elapseOneMinute(), elapseMinutes(long), a
+     * timing wheel or restoreState(DataInput).
+     *
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public synchronized void addReadingListener(ReadingListener listener)
+            throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException();
+        }
+        ReadingListener[] grown = Arrays.copyOf(listeners,
+                listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    /**
+     * Adds a listener to be notified only when a change of the current
+     * reading takes the hazard level of this sensor from below the given
+     * threshold to at least the threshold, or back below it.
+     *
+     * @param threshold the hazard level to watch, 0 to 100
+     * @param listener  the listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public void addReadingListener(int threshold, ReadingListener listener)
+            throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException();
+        }
+        addReadingListener(new ThresholdFilter(threshold, listener));
+    }
+
+    /**
+     * Removes a listener added with either addReadingListener method. If it
+     * was added several times, only the first is removed.
+     *
+     * @param listener the listener to remove
+     * @return true if the listener was removed
+     */
+    public synchronized boolean removeReadingListener(
+            ReadingListener listener) {
+        ReadingListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            ReadingListener added = current[i];
+            if (added instanceof ThresholdFilter) {
+                added = ((ThresholdFilter) added).listener;
+            }
+            if (added == listener) {
+                ReadingListener[] shrunk = NO_LISTENERS;
+                if (current.length > 1) {
+                    shrunk = new ReadingListener[current.length - 1];
+                    System.arraycopy(current, 0, shrunk, 0, i);
+                    System.arraycopy(current, i + 1, shrunk, i,
+                            current.length - i - 1);
+                }
+                listeners = shrunk;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns rolling statistics of this sensor's readings over the given
+     * window, starting to track them from the current minute if they are not
+     * tracked yet.
+     * <p>
+     * When the sensor is fast-forwarded with elapseMinutes(long), only its
+     * final reading is recorded, at the end of the elapsed time.
+     *
+     * @param window length of the window in minutes
+     * @return statistics of the readings over the last window minutes
+     * @throws IllegalArgumentException if window is less than one
+     */
+    public synchronized RollingStatistics getStatistics(int window)
+            throws IllegalArgumentException {
+        RollingStatistics[] tracked = statistics;
+        for (int i = 0; i < tracked.length; i++) {
+            if (tracked[i].getWindow() == window) {
+                return tracked[i];
+            }
+        }
+        RollingStatistics added = new RollingStatistics(window,
+                this::getTimeElapsed, currentReading);
+        RollingStatistics[] grown = Arrays.copyOf(tracked,
+                tracked.length + 1);
+        grown[tracked.length] = added;
+        statistics = grown;
+        return added;
+    }
+
+    /**
+     * Returns the hazard level of the current reading, computing it with
+     * computeHazardLevel(int) only if the reading differs from the one the
+     * level was last computed for.
+     * <p>
+     * The level is memoised together with the reading it belongs to, so a
+     * level computed from a reading which changed in the meantime, e.g. by
+     * a tick on another thread, is never returned for the new reading.
+     *
+     * @return the hazard level of the current reading, 0 to 100
+     */
+    protected int getMemoisedHazardLevel() {
+        int reading = currentReading;
+        long memo = hazardMemo;
+        if ((int) memo >= 0 && (int) (memo >>> 32) == reading) {
+            return (int) memo;
+        }
+        int level = computeHazardLevel(reading);
+        hazardMemo = ((long) reading << 32) | (level & 0xFFFFFFFFL);
+        return level;
+    }
+
+    /**
+     * Computes the hazard level of the given reading of this sensor.
+     * <p>
+     * The result must only depend on the reading and on values fixed at
+     * construction, as it is memoised until the reading changes.
+     * <p>
+     * Hazard sensors override this method. By default a reading has a hazard
+     * level of 0, as a sensor which is not a hazard sensor has none.
+     *
+     * @param reading a reading of this sensor
+     * @return the hazard level of the reading, 0 to 100
+     */
+    protected int computeHazardLevel(int reading) {
+        return 0;
+    }
+
+    /**
+     * Passes on only the reading changes which take the hazard level across
+     * a threshold.
+     */
+    private static final class ThresholdFilter implements ReadingListener {
+        private final int threshold;
+        private final ReadingListener listener;
+
+        private ThresholdFilter(int threshold, ReadingListener listener) {
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+
+        @Override
+        public void readingChanged(TimedSensor sensor, int previousReading) {
+            boolean wasAbove = sensor.computeHazardLevel(previousReading)
+                    >= threshold;
+            boolean isAbove = sensor.getMemoisedHazardLevel() >= threshold;
+            if (wasAbove != isAbove) {
+                listener.readingChanged(sensor, previousReading);
             }
-            currentReading = sensorReadings[currentPosition];
         }
     }
 
@@ -134,11 +563,14 @@ public abstract class TimedSensor implements TimedItem, Sensor {
     @Override
     public String toString() {
 
-        // get desired string format of the array.
-        String commaSeparated = Arrays.toString(sensorReadings);
-        commaSeparated = commaSeparated.substring
-                (1, commaSeparated.length() - 1);
-        commaSeparated = commaSeparated.replaceAll("\\s+", "");
+        // get desired string format of the readings.
+        StringBuilder commaSeparated = new StringBuilder();
+        for (int i = 0; i < sensorReadings.length(); i++) {
+            if (i > 0) {
+                commaSeparated.append(',');
+            }
+            commaSeparated.append(sensorReadings.get(i));
+        }
         return String.format("TimedSensor: freq=%d, readings=%s",
                 updateFrequency, commaSeparated);
     }
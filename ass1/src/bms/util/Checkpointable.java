@@ -0,0 +1,34 @@
+package bms.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A type whose runtime state can be written to a binary checkpoint and later
+ * restored from it.
+ * <p>
+ * Only state which changes as the simulation runs is checkpointed; the
+ * object being restored must have been constructed with the same
+ * configuration (e.g. loaded from the same save file) as the one saved.
+ */
+public interface Checkpointable {
+
+    /**
+     * Writes the runtime state of this object.
+     *
+     * @param out the output to write the state to
+     * @throws IOException if an IOException is encountered when writing
+     */
+    void saveState(DataOutput out) throws IOException;
+
+    /**
+     * Restores the runtime state of this object, as previously written by
+     * saveState(DataOutput).
+     *
+     * @param in the input to read the state from
+     * @throws IOException if an IOException is encountered when reading, or
+     *                     the state read is not valid for this object
+     */
+    void restoreState(DataInput in) throws IOException;
+}
@@ -0,0 +1,12 @@
+package bms.util;
+
+/**
+ * Denotes a timed item whose elapseOneMinute() method only reads and writes
+ * the item's own state.
+ * <p>
+ * Items of this kind do not depend on each other, so the timed item manager
+ * may tick them concurrently, and always ticks them before any other timed
+ * item when parallel ticks are enabled.
+ */
+public interface ConcurrentTimedItem extends TimedItem {
+}
@@ -0,0 +1,155 @@
+package bms.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Records the history of any number of values, such as sensor readings or
+ * room hazard levels, by sampling them once every simulated minute into a
+ * TimeSeries each.
+ * <p>
+ * The recorder is a timed item, and samples at the minute of the timed item
+ * manager it is registered with. Items are ticked in the order they were
+ * registered, so a recorder should be created after the items whose values
+ * it samples, or it records each value one minute late.
+ */
+public class HistoryRecorder implements TimedItem {
+    // the manager this recorder is registered with
+    private final TimedItemManager manager;
+
+    // retention periods given to each new series, in minutes
+    private final long minuteRetention;
+    private final long fiveMinuteRetention;
+    private final long hourRetention;
+
+    // the sources of each tracked value, by key, in the order tracked
+    private final Map<String, IntSupplier> sources = new LinkedHashMap<>();
+
+    // the history of each tracked value, by key
+    private final Map<String, TimeSeries> series = new LinkedHashMap<>();
+
+    /**
+     * Creates a new recorder with the default retention periods, see
+     * TimeSeries(), registered with the given timed item manager.
+     *
+     * @param manager the timed item manager to register with
+     * @throws IllegalArgumentException if manager is null
+     */
+    public HistoryRecorder(TimedItemManager manager)
+            throws IllegalArgumentException {
+        this(manager, TimeSeries.DEFAULT_MINUTE_RETENTION,
+                TimeSeries.DEFAULT_FIVE_MINUTE_RETENTION,
+                TimeSeries.DEFAULT_HOUR_RETENTION);
+    }
+
+    /**
+     * Creates a new recorder with the given retention periods, registered
+     * with the given timed item manager.
+     *
+     * @param manager             the timed item manager to register with
+     * @param minuteRetention     minutes to keep minute values for
+     * @param fiveMinuteRetention minutes to keep 5-minute rollups for
+     * @param hourRetention       minutes to keep hourly rollups for
+     * @throws IllegalArgumentException if manager is null, or any retention
+     *                                  period is less than one
+     */
+    public HistoryRecorder(TimedItemManager manager, long minuteRetention,
+            long fiveMinuteRetention, long hourRetention)
+            throws IllegalArgumentException {
+        if (manager == null || minuteRetention < 1
+                || fiveMinuteRetention < 1 || hourRetention < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.manager = manager;
+        this.minuteRetention = minuteRetention;
+        this.fiveMinuteRetention = fiveMinuteRetention;
+        this.hourRetention = hourRetention;
+        manager.registerTimedItem(this);
+    }
+
+    /**
+     * Starts recording the value supplied by the given source under the given
+     * key, replacing the source of any value already tracked under that key.
+     * Its history so far is kept.
+     *
+     * @param key    the name to record the value under
+     * @param source supplies the value at each minute
+     * @throws IllegalArgumentException if key or source is null
+     */
+    public synchronized void track(String key, IntSupplier source)
+            throws IllegalArgumentException {
+        if (key == null || source == null) {
+            throw new IllegalArgumentException();
+        }
+        sources.put(key, source);
+        if (!series.containsKey(key)) {
+            series.put(key, new TimeSeries(minuteRetention,
+                    fiveMinuteRetention, hourRetention));
+        }
+    }
+
+    /**
+     * Stops recording the value tracked under the given key. Its history is
+     * kept.
+     *
+     * @param key the name the value is recorded under
+     */
+    public synchronized void untrack(String key) {
+        sources.remove(key);
+    }
+
+    /**
+     * Returns the history of the value recorded under the given key.
+     *
+     * @param key the name the value is recorded under
+     * @return history of the value; null if nothing was recorded under key
+     */
+    public synchronized TimeSeries getSeries(String key) {
+        return series.get(key);
+    }
+
+    /**
+     * Returns the keys of every value with a history, in the order they were
+     * first tracked.
+     *
+     * @return new list of keys
+     */
+    public synchronized List<String> getKeys() {
+        return new ArrayList<>(series.keySet());
+    }
+
+    /**
+     * Samples every tracked value at the manager's current minute. A minute
+     * already recorded, e.g. after the manager's clock has been moved back,
+     * is skipped.
+     */
+    public synchronized void record() {
+        long minute = manager.getMinutesElapsed();
+        for (Map.Entry<String, IntSupplier> entry : sources.entrySet()) {
+            TimeSeries history = series.get(entry.getKey());
+            if (minute > history.getLastMinute()) {
+                history.append(minute, entry.getValue().getAsInt());
+            }
+        }
+    }
+
+    /**
+     * Samples every tracked value, see record().
+     */
+    @Override
+    public void elapseOneMinute() {
+        record();
+    }
+
+    /**
+     * Returns the timed item manager this recorder is registered with.
+     *
+     * @return the manager which ticks this recorder
+     */
+    public TimedItemManager getTimedItemManager() {
+        return manager;
+    }
+}
@@ -0,0 +1,291 @@
+package bms.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a timed item, usually a TimedItemManager, against wall-clock time.
+ * <p>
+ * At a speed of 1 the clock is advanced by one simulated minute every real
+ * minute; at a speed of 60 once every real second, and so on up to
+ * getMaxSpeed().
+ * <p>
+ * Every simulated minute has a fixed deadline measured from the time the
+ * driver was started, and each tick is scheduled for its own deadline rather
+ * than a fixed delay after the previous tick, so overruns never accumulate
+ * into drift. If ticks overrun so far that several deadlines have passed,
+ * the missed minutes are caught up in one call to elapseMinutes(long). The
+ * lag between each deadline and the time its tick actually ran is recorded,
+ * showing when the clock can no longer keep up.
+ * <p>
+ * If advancing the clock throws an exception, the driver stops and the
+ * exception is kept, see getFailure().
+ */
+public class SimulationDriver {
+    // the highest supported speed
+    private static final double MAX_SPEED = 10000;
+
+    // the item advanced by this driver
+    private final TimedItem clock;
+
+    // length of one simulated minute in real nanoseconds
+    private final long period;
+
+    // executor on which ticks run
+    private final ScheduledExecutorService executor;
+
+    // whether the executor was created by, and must be shut down by, this
+    // driver
+    private final boolean ownsExecutor;
+
+    // the pending tick; null when the driver is stopped
+    private ScheduledFuture<?> pending = null;
+
+    // incremented on every start, so that a tick still running from an
+    // earlier run neither updates this run's clock nor schedules more ticks
+    private long run = 0;
+
+    // the exception which stopped the driver; null if none has
+    private volatile Throwable failure = null;
+
+    // System.nanoTime() at which the driver was started
+    private long startTime;
+
+    // the number of simulated minutes elapsed since the driver was started
+    private volatile long minutesElapsed = 0;
+
+    // lag of the most recent tick behind its deadline, in nanoseconds
+    private volatile long lastLag = 0;
+
+    // largest lag of any tick behind its deadline, in nanoseconds
+    private volatile long maxLag = 0;
+
+    // the number of ticks that had to catch up on more than one minute
+    private volatile long overruns = 0;
+
+    /**
+     * Creates a new driver for the given clock at the given speed, running
+     * ticks on its own single-threaded executor.
+     *
+     * @param clock the timed item to advance, e.g. a TimedItemManager
+     * @param speed the number of simulated minutes per real minute
+     * @throws IllegalArgumentException if clock is null, or speed is <= 0
+     *                                  or > getMaxSpeed()
+     */
+    public SimulationDriver(TimedItem clock, double speed)
+            throws IllegalArgumentException {
+        this(clock, speed, null);
+    }
+
+    /**
+     * Creates a new driver for the given clock at the given speed, running
+     * ticks on the given executor.
+     * <p>
+     * The executor is not shut down when the driver is stopped.
+     *
+     * @param clock    the timed item to advance, e.g. a TimedItemManager
+     * @param speed    the number of simulated minutes per real minute
+     * @param executor the executor on which to run ticks, or null to use a
+     *                 new single-threaded executor owned by this driver
+     * @throws IllegalArgumentException if clock is null, or speed is <= 0
+     *                                  or > getMaxSpeed()
+     */
+    public SimulationDriver(TimedItem clock, double speed,
+            ScheduledExecutorService executor)
+            throws IllegalArgumentException {
+        if (clock == null || !(speed > 0) || speed > MAX_SPEED) {
+            throw new IllegalArgumentException();
+        }
+        this.clock = clock;
+        this.period = Math.round(TimeUnit.MINUTES.toNanos(1) / speed);
+        if (executor == null) {
+            this.executor = Executors.newSingleThreadScheduledExecutor();
+            this.ownsExecutor = true;
+        } else {
+            this.executor = executor;
+            this.ownsExecutor = false;
+        }
+    }
+
+    /**
+     * Returns the highest speed a driver can run at.
+     *
+     * @return maximum number of simulated minutes per real minute
+     */
+    public static double getMaxSpeed() {
+        return MAX_SPEED;
+    }
+
+    /**
+     * Returns the real time between two simulated minutes.
+     *
+     * @return tick period in nanoseconds
+     */
+    public long getTickPeriod() {
+        return period;
+    }
+
+    /**
+     * Starts advancing the clock. The first simulated minute elapses one tick
+     * period after this call.
+     *
+     * @throws IllegalStateException if the driver is already running, or its
+     *                               own executor has been shut down
+     */
+    public synchronized void start() throws IllegalStateException {
+        if (pending != null || executor.isShutdown()) {
+            throw new IllegalStateException();
+        }
+        run++;
+        startTime = System.nanoTime();
+        minutesElapsed = 0;
+        failure = null;
+        scheduleNext();
+    }
+
+    /**
+     * Stops advancing the clock. A tick that is already running is allowed
+     * to finish. If this driver created its own executor, that executor is
+     * shut down and the driver cannot be started again.
+     */
+    public synchronized void stop() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns whether the driver is currently advancing the clock.
+     *
+     * @return true if the driver has been started and not stopped
+     */
+    public synchronized boolean isRunning() {
+        return pending != null;
+    }
+
+    /**
+     * Returns the number of simulated minutes elapsed since the driver was
+     * last started.
+     *
+     * @return minutes elapsed
+     */
+    public long getMinutesElapsed() {
+        return minutesElapsed;
+    }
+
+    /**
+     * Returns the exception thrown while advancing the clock which stopped
+     * the driver since it was last started.
+     *
+     * @return exception which stopped the driver; null if there was none
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns how far the most recent tick ran behind its deadline.
+     *
+     * @return lag of the most recent tick in nanoseconds
+     */
+    public long getLastLag() {
+        return lastLag;
+    }
+
+    /**
+     * Returns the largest lag of any tick behind its deadline.
+     *
+     * @return maximum lag in nanoseconds
+     */
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    /**
+     * Returns the number of ticks which ran so late that more than one
+     * simulated minute had to be caught up.
+     *
+     * @return number of overrun ticks
+     */
+    public long getOverrunCount() {
+        return overruns;
+    }
+
+    /**
+     * Advances the clock to the minute due at the current time, records the
+     * lag and schedules the following tick, unless the driver has been
+     * stopped or restarted since this tick was scheduled.
+     */
+    private void tick(long tickRun) {
+        long start;
+        synchronized (this) {
+            if (tickRun != run || pending == null) {
+                return;
+            }
+            start = startTime;
+        }
+        long now = System.nanoTime();
+        long due = (now - start) / period;
+        long behind = due - minutesElapsed;
+        if (behind > 0) {
+            long lag = now - (start + (minutesElapsed + 1) * period);
+            lastLag = lag;
+            if (lag > maxLag) {
+                maxLag = lag;
+            }
+            try {
+                if (behind == 1) {
+                    clock.elapseOneMinute();
+                } else {
+                    overruns++;
+                    clock.elapseMinutes(behind);
+                }
+            } catch (RuntimeException | Error e) {
+                fail(tickRun, e);
+                return;
+            }
+        }
+        synchronized (this) {
+            if (tickRun == run) {
+                if (behind > 0) {
+                    minutesElapsed = due;
+                }
+                if (pending != null) {
+                    scheduleNext();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the exception thrown by a tick and stops the driver, unless it
+     * has been restarted since that tick was scheduled.
+     */
+    private synchronized void fail(long tickRun, Throwable e) {
+        if (tickRun == run) {
+            stop();
+            failure = e;
+        }
+    }
+
+    /**
+     * Schedules a tick at the deadline of the next simulated minute.
+     */
+    private void scheduleNext() {
+        final long tickRun = run;
+        long deadline = startTime + (minutesElapsed + 1) * period;
+        long delay = deadline - System.nanoTime();
+        pending = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                tick(tickRun);
+            }
+        }, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,181 @@
+package bms.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing statistics collected by a TimedItemManager while instrumentation is
+ * enabled, see TimedItemManager.enableStatistics(long).
+ * <p>
+ * For every tick the total latency is recorded in a histogram with
+ * power-of-two buckets, and compared against a budget. For every item ticked
+ * directly by the manager, the call and the time it took are added to the
+ * totals of the item's class. Items scheduled on the timing wheel are
+ * counted together under TimingWheel.
+ * <p>
+ * Statistics may be read from any thread while the manager is ticking.
+ */
+public class TickStatistics {
+    // number of histogram buckets; bucket i counts latencies below 2^(i+1) ns
+    private static final int BUCKETS = 40;
+
+    // tick latency above which a tick counts as an overrun, in nanoseconds
+    private final long budget;
+
+    // number of ticks recorded in each latency bucket
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    // the number of ticks recorded
+    private final LongAdder ticks = new LongAdder();
+
+    // the number of ticks which took longer than the budget
+    private final LongAdder overruns = new LongAdder();
+
+    // total latency of all ticks, in nanoseconds
+    private final LongAdder totalLatency = new LongAdder();
+
+    // number of elapseOneMinute() calls per item class
+    private final Map<Class<?>, LongAdder> calls = new ConcurrentHashMap<>();
+
+    // cumulative time spent in elapseOneMinute() per item class
+    private final Map<Class<?>, LongAdder> times = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new empty set of statistics with the given tick budget.
+     *
+     * @param budget tick latency above which a tick is an overrun, in
+     *               nanoseconds
+     * @throws IllegalArgumentException if budget is less than zero
+     */
+    public TickStatistics(long budget) throws IllegalArgumentException {
+        if (budget < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the tick latency above which a tick counts as an overrun.
+     *
+     * @return tick budget in nanoseconds
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the number of ticks recorded.
+     *
+     * @return number of ticks
+     */
+    public long getTickCount() {
+        return ticks.sum();
+    }
+
+    /**
+     * Returns the number of ticks which took longer than the budget.
+     *
+     * @return number of overrun ticks
+     */
+    public long getOverrunCount() {
+        return overruns.sum();
+    }
+
+    /**
+     * Returns the mean latency of all recorded ticks.
+     *
+     * @return mean tick latency in nanoseconds; 0 if no ticks were recorded
+     */
+    public long getMeanLatency() {
+        long count = ticks.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return totalLatency.sum() / count;
+    }
+
+    /**
+     * Returns a histogram of tick latencies. Element i of the returned array
+     * is the number of ticks which took at least 2^i nanoseconds (0 for the
+     * first element) and less than 2^(i+1) nanoseconds; the last element also
+     * counts every longer tick.
+     *
+     * @return new array of tick counts per latency bucket
+     */
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the number of elapseOneMinute() calls made per item class,
+     * keyed by simple class name in alphabetical order.
+     *
+     * @return new map of call counts per class
+     */
+    public Map<String, Long> getCallCounts() {
+        return sumByName(calls);
+    }
+
+    /**
+     * Returns the cumulative time spent in elapseOneMinute() per item class,
+     * keyed by simple class name in alphabetical order.
+     *
+     * @return new map of cumulative times per class, in nanoseconds
+     */
+    public Map<String, Long> getCumulativeTimes() {
+        return sumByName(times);
+    }
+
+    /**
+     * Records one tick of the manager.
+     *
+     * @param latency the time the tick took, in nanoseconds
+     */
+    void recordTick(long latency) {
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(latency, 1));
+        histogram.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        ticks.increment();
+        totalLatency.add(latency);
+        if (latency > budget) {
+            overruns.increment();
+        }
+    }
+
+    /**
+     * Records one call to an item's elapseOneMinute() method.
+     *
+     * @param type the class of the item
+     * @param time the time the call took, in nanoseconds
+     */
+    void recordItem(Class<?> type, long time) {
+        LongAdder count = calls.get(type);
+        if (count == null) {
+            count = calls.computeIfAbsent(type, k -> new LongAdder());
+        }
+        count.increment();
+        LongAdder total = times.get(type);
+        if (total == null) {
+            total = times.computeIfAbsent(type, k -> new LongAdder());
+        }
+        total.add(time);
+    }
+
+    private static Map<String, Long> sumByName(
+            Map<Class<?>, LongAdder> totals) {
+        Map<String, Long> byName = new TreeMap<>();
+        for (Map.Entry<Class<?>, LongAdder> entry : totals.entrySet()) {
+            String name = entry.getKey().getSimpleName();
+            Long previous = byName.get(name);
+            long sum = entry.getValue().sum();
+            byName.put(name, previous == null ? sum : previous + sum);
+        }
+        return byName;
+    }
+}
@@ -0,0 +1,348 @@
+package bms.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only series of integer values, one per simulated minute, kept at
+ * three resolutions: every minute, and rolled up into 5-minute and hourly
+ * buckets.
+ * <p>
+ * Each resolution stores its buckets in fixed-size chunks of CHUNK_SIZE
+ * buckets, looked up by chunk number, so a range query only visits the
+ * chunks overlapping the range. Every append updates the minute value and
+ * the minimum, maximum, sum and count of its two rollup buckets in constant
+ * time.
+ * <p>
+ * Each resolution has its own retention period. Once the newest value is
+ * more than a retention period past a chunk, the whole chunk is discarded,
+ * so memory stays bounded however long the simulation runs, and coarser
+ * resolutions can be kept for much longer than individual minutes.
+ */
+public class TimeSeries {
+    /**
+     * The resolutions a time series is kept at.
+     */
+    public enum Resolution {
+        /** One value per minute. */
+        MINUTE(1),
+        /** Rollups of 5 minutes. */
+        FIVE_MINUTES(5),
+        /** Rollups of 60 minutes. */
+        HOUR(60);
+
+        // the number of minutes in one bucket
+        private final int minutes;
+
+        Resolution(int minutes) {
+            this.minutes = minutes;
+        }
+
+        /**
+         * Returns the number of minutes covered by one bucket at this
+         * resolution.
+         *
+         * @return bucket length in minutes
+         */
+        public int getMinutes() {
+            return minutes;
+        }
+    }
+
+    /**
+     * The values of one bucket of a time series.
+     */
+    public static final class Sample {
+        private final long minute;
+        private final int min;
+        private final int max;
+        private final long sum;
+        private final int count;
+
+        private Sample(long minute, int min, int max, long sum, int count) {
+            this.minute = minute;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.count = count;
+        }
+
+        /**
+         * Returns the first minute covered by the bucket.
+         *
+         * @return start of the bucket, in minutes
+         */
+        public long getMinute() {
+            return minute;
+        }
+
+        /**
+         * Returns the lowest value appended in the bucket.
+         *
+         * @return minimum value
+         */
+        public int getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the highest value appended in the bucket.
+         *
+         * @return maximum value
+         */
+        public int getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the mean of the values appended in the bucket.
+         *
+         * @return mean value
+         */
+        public double getMean() {
+            return (double) sum / count;
+        }
+
+        /**
+         * Returns the number of values appended in the bucket.
+         *
+         * @return number of minutes with a value
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d: min=%d, max=%d, mean=%.2f, count=%d",
+                    minute, min, max, getMean(), count);
+        }
+    }
+
+    /**
+     * The number of buckets in one chunk, at every resolution.
+     */
+    public static final int CHUNK_SIZE = 256;
+
+    // every resolution, in order from finest to coarsest
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    // default retention of each resolution, in minutes: a week, 90 days and
+    // two years
+    static final long DEFAULT_MINUTE_RETENTION = 7 * 24 * 60;
+    static final long DEFAULT_FIVE_MINUTE_RETENTION = 90 * 24 * 60;
+    static final long DEFAULT_HOUR_RETENTION = 2 * 365 * 24 * 60;
+
+    // the chunks of each resolution, by chunk number
+    private final List<Map<Long, Chunk>> levels = new ArrayList<>();
+
+    // the number of chunks kept at each resolution, besides the newest
+    private final long[] retainedChunks;
+
+    // the minute of the newest value; -1 if none has been appended
+    private long lastMinute = -1;
+
+    /**
+     * Creates a new empty time series with the default retention periods:
+     * one week of minute values, 90 days of 5-minute rollups and two years
+     * of hourly rollups.
+     */
+    public TimeSeries() {
+        this(DEFAULT_MINUTE_RETENTION, DEFAULT_FIVE_MINUTE_RETENTION,
+                DEFAULT_HOUR_RETENTION);
+    }
+
+    /**
+     * Creates a new empty time series with the given retention periods.
+     * Values are kept for at least their resolution's retention period, and
+     * at most one chunk longer.
+     *
+     * @param minuteRetention     minutes to keep minute values for
+     * @param fiveMinuteRetention minutes to keep 5-minute rollups for
+     * @param hourRetention       minutes to keep hourly rollups for
+     * @throws IllegalArgumentException if any retention period is less than
+     *                                  one
+     */
+    public TimeSeries(long minuteRetention, long fiveMinuteRetention,
+            long hourRetention) throws IllegalArgumentException {
+        long[] retention = {minuteRetention, fiveMinuteRetention,
+                hourRetention};
+        retainedChunks = new long[RESOLUTIONS.length];
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            if (retention[i] < 1) {
+                throw new IllegalArgumentException();
+            }
+            long chunkMinutes = (long) CHUNK_SIZE * RESOLUTIONS[i].minutes;
+            retainedChunks[i] = (retention[i] + chunkMinutes - 1)
+                    / chunkMinutes;
+            levels.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Appends a value at the given minute.
+     *
+     * @param minute the minute of the value; must be later than the minute
+     *               of every value already appended
+     * @param value  the value at that minute, greater than
+     *               Integer.MIN_VALUE
+     * @throws IllegalArgumentException if minute is less than zero, or not
+     *                                  later than the newest value's minute;
+     *                                  or if value is Integer.MIN_VALUE
+     */
+    public synchronized void append(long minute, int value)
+            throws IllegalArgumentException {
+        if (minute < 0 || minute <= lastMinute || value == Chunk.EMPTY) {
+            throw new IllegalArgumentException();
+        }
+        lastMinute = minute;
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            long bucket = minute / RESOLUTIONS[i].minutes;
+            long number = bucket / CHUNK_SIZE;
+            Map<Long, Chunk> chunks = levels.get(i);
+            Chunk chunk = chunks.get(number);
+            if (chunk == null) {
+                chunk = new Chunk(i > 0);
+                chunks.put(number, chunk);
+                discardBefore(chunks, number - retainedChunks[i]);
+            }
+            chunk.add((int) (bucket % CHUNK_SIZE), value);
+        }
+    }
+
+    /**
+     * Returns the minute of the newest value appended.
+     *
+     * @return minute of the newest value; -1 if the series is empty
+     */
+    public synchronized long getLastMinute() {
+        return lastMinute;
+    }
+
+    /**
+     * Returns the buckets at the given resolution which start within the
+     * given range of minutes and hold at least one value, in order.
+     *
+     * @param resolution the resolution to query
+     * @param from       first minute of the range, inclusive
+     * @param to         last minute of the range, exclusive
+     * @return new list of the non-empty buckets in the range
+     */
+    public synchronized List<Sample> query(Resolution resolution, long from,
+            long to) {
+        List<Sample> samples = new ArrayList<>();
+        if (to <= from || to <= 0) {
+            return samples;
+        }
+        int level = resolution.ordinal();
+        int minutes = resolution.minutes;
+        long first = (Math.max(from, 0) + minutes - 1) / minutes;
+        long last = (to - 1) / minutes;
+        Map<Long, Chunk> chunks = levels.get(level);
+        for (long number = first / CHUNK_SIZE; number <= last / CHUNK_SIZE;
+                number++) {
+            Chunk chunk = chunks.get(number);
+            if (chunk == null) {
+                continue;
+            }
+            long base = number * CHUNK_SIZE;
+            int start = (int) Math.max(first - base, 0);
+            int end = (int) Math.min(last - base, CHUNK_SIZE - 1);
+            for (int i = start; i <= end; i++) {
+                if (chunk.count(i) > 0) {
+                    samples.add(new Sample((base + i) * minutes,
+                            chunk.min[i], chunk.max(i), chunk.sum(i),
+                            chunk.count(i)));
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Returns the number of chunks currently held at the given resolution.
+     *
+     * @param resolution the resolution to count
+     * @return number of chunks held
+     */
+    public synchronized int getChunkCount(Resolution resolution) {
+        return levels.get(resolution.ordinal()).size();
+    }
+
+    /**
+     * Discards every chunk numbered below the given chunk number.
+     */
+    private static void discardBefore(Map<Long, Chunk> chunks, long number) {
+        Iterator<Long> numbers = chunks.keySet().iterator();
+        while (numbers.hasNext()) {
+            if (numbers.next() < number) {
+                numbers.remove();
+            }
+        }
+    }
+
+    /**
+     * A fixed-size block of buckets. Minute chunks only keep each value, as
+     * their buckets hold at most one.
+     */
+    private static final class Chunk {
+        // marks a minute bucket with no value
+        private static final int EMPTY = Integer.MIN_VALUE;
+
+        // minimum of each bucket, or the value of each minute
+        private final int[] min = new int[CHUNK_SIZE];
+
+        // maximum, sum and count of each rollup bucket; null for minutes
+        private final int[] max;
+        private final long[] sum;
+        private final int[] count;
+
+        private Chunk(boolean rollup) {
+            if (rollup) {
+                max = new int[CHUNK_SIZE];
+                sum = new long[CHUNK_SIZE];
+                count = new int[CHUNK_SIZE];
+            } else {
+                max = null;
+                sum = null;
+                count = null;
+                Arrays.fill(min, EMPTY);
+            }
+        }
+
+        private void add(int index, int value) {
+            if (count == null) {
+                min[index] = value;
+            } else if (count[index] == 0) {
+                min[index] = value;
+                max[index] = value;
+                sum[index] = value;
+                count[index] = 1;
+            } else {
+                min[index] = Math.min(min[index], value);
+                max[index] = Math.max(max[index], value);
+                sum[index] += value;
+                count[index]++;
+            }
+        }
+
+        private int max(int index) {
+            return count == null ? min[index] : max[index];
+        }
+
+        private long sum(int index) {
+            return count == null ? min[index] : sum[index];
+        }
+
+        private int count(int index) {
+            if (count == null) {
+                return min[index] == EMPTY ? 0 : 1;
+            }
+            return count[index];
+        }
+    }
+}
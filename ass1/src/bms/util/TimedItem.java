@@ -11,4 +11,24 @@ public interface TimedItem {
      * provided the model is not in a paused state.
      */
     void elapseOneMinute();
+
+    /**
+     * Progresses this item by the given number of minutes, leaving it in the
+     * same state as calling elapseOneMinute() that many times.
+     * <p>
+     * By default this simply calls elapseOneMinute() repeatedly; items whose
+     * state is a closed-form function of time should override it to jump
+     * forward directly.
+     *
+     * @param minutes the number of minutes to elapse
+     * @throws IllegalArgumentException if minutes is less than zero
+     */
+    default void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException();
+        }
+        for (long i = 0; i < minutes; i++) {
+            elapseOneMinute();
+        }
+    }
 }
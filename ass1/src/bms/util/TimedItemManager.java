@@ -1,9 +1,15 @@
 package bms.util;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * Singleton class which manages all the timed items.
+ * Class which manages all the timed items of a simulation, acting as its
+ * clock. A shared singleton instance is used by default.
  * All classes that implement TimedItem must be registered with this manager,
  * which will allow their elapseOneMinute() method to be called at regular time
  * intervals.
@@ -11,28 +17,113 @@ import java.util.ArrayList;
  * Once a class is registered with the timed item manager by calling
  * registerTimedItem(TimedItem) ()} and passing itself, the manager will ensure
  * that its elapseOneMinute() method is called at regular intervals.
+ * <p>
+ * By default items are ticked one at a time in the order they were
+ * registered. When parallel ticks are enabled, each minute is split into two
+ * phases: all ConcurrentTimedItems (e.g. sensors) are first ticked across a
+ * ForkJoinPool, then every other item (e.g. maintenance schedules, which read
+ * room state) is ticked sequentially in registration order.
+ * <p>
+ * When the timing wheel is enabled, WheelTimedItems are scheduled on a
+ * TimingWheel instead, which is ticked before all other items and only wakes
+ * each item on the minutes at which its update is due.
+ * <p>
+ * Items can be removed again with unregisterTimedItem(TimedItem). When weak
+ * references are enabled, the manager does not keep items alive: an item
+ * that is no longer referenced anywhere else is dropped by the manager once
+ * it has been garbage collected. This does not apply to items on the timing
+ * wheel, which are always held strongly and must be unregistered explicitly.
+ * <p>
+ * Further managers can be created to run independent simulations side by
+ * side. Each manager only ticks its own items, and all of its methods are
+ * synchronized on the manager, so each one can be driven from its own
+ * thread. Timed items are bound to the manager returned by getInstance()
+ * unless one is given explicitly; a manager can be made the default for the
+ * current thread with bindToCurrentThread().
+ * <p>
+ * Tick timings can be collected by enabling statistics, see
+ * enableStatistics(long). While statistics are disabled the only cost is one
+ * null check per item.
  */
 public class TimedItemManager implements TimedItem {
     // singleton instance of TimedItemManager
-    private static TimedItemManager singleton = null;
+    private static final TimedItemManager singleton = new TimedItemManager();
+
+    // manager returned by getInstance() on each thread, if not the singleton
+    private static final ThreadLocal<TimedItemManager> threadManager =
+            new ThreadLocal<TimedItemManager>();
+
+    // number of items below which a tick task is not split any further
+    private static final int SPLIT_THRESHOLD = 1024;
 
     // the dynamic array to store objects belong to TimedItem class
     private ArrayList<TimedItem> itemManager = new ArrayList<TimedItem>();
 
-    // private constructor
-    private TimedItemManager() {
+    // pool used for parallel ticks; null when ticking sequentially
+    private ForkJoinPool pool = null;
+
+    // items ticked in the concurrent phase, rebuilt after registrations
+    private TimedItem[] concurrentPhase = null;
+
+    // items ticked in the sequential phase, rebuilt after registrations
+    private TimedItem[] sequentialPhase = null;
+
+    // wheel holding all WheelTimedItems; null when the wheel is disabled
+    private TimingWheel wheel = null;
+
+    // whether items in itemManager are held by weak reference
+    private boolean weakReferences = false;
+
+    // the number of minutes this manager has elapsed
+    private long minutesElapsed = 0;
+
+    // statistics collected on each tick; null when instrumentation is off
+    private TickStatistics statistics = null;
+
+    // queue onto which weakly held items are enqueued once collected
+    private ReferenceQueue<TimedItem> collected =
+            new ReferenceQueue<TimedItem>();
+
+    /**
+     * Creates a new timed item manager with no items, independent of the
+     * singleton instance.
+     */
+    public TimedItemManager() {
     }
 
     /**
-     * Returns the singleton instance of the timed item manager.
+     * Returns the timed item manager bound to the current thread, or the
+     * singleton instance if none is bound.
      *
-     * @return singleton instance
+     * @return the current thread's manager, or the singleton instance
      */
     public static TimedItemManager getInstance() {
-        if (singleton == null) {
-            singleton = new TimedItemManager();
+        TimedItemManager manager = threadManager.get();
+        if (manager == null) {
+            return singleton;
         }
-        return singleton;
+        return manager;
+    }
+
+    /**
+     * Makes this manager the one returned by getInstance() on the current
+     * thread, so that timed items created on this thread without an explicit
+     * manager are registered with it.
+     */
+    public void bindToCurrentThread() {
+        if (this == singleton) {
+            threadManager.remove();
+        } else {
+            threadManager.set(this);
+        }
+    }
+
+    /**
+     * Restores the singleton instance as the manager returned by
+     * getInstance() on the current thread.
+     */
+    public static void unbindFromCurrentThread() {
+        threadManager.remove();
     }
 
     /**
@@ -42,14 +133,470 @@ public class TimedItemManager implements TimedItem {
      *
      * @param timedItem a timed item to register with the manager
      */
-    public void registerTimedItem(TimedItem timedItem) {
-        itemManager.add(timedItem);
+    public synchronized void registerTimedItem(TimedItem timedItem) {
+        if (wheel != null && timedItem instanceof WheelTimedItem) {
+            wheel.schedule((WheelTimedItem) timedItem);
+            return;
+        }
+        itemManager.add(hold(timedItem));
+        concurrentPhase = null;
+        sequentialPhase = null;
+    }
+
+    /**
+     * Unregisters a timed item from the manager.
+     * After calling this method, the manager will no longer call the given
+     * timed item's elapseOneMinute() method.
+     *
+     * @param timedItem a timed item to unregister from the manager
+     * @return true if the item was registered with this manager
+     */
+    public synchronized boolean unregisterTimedItem(TimedItem timedItem) {
+        if (wheel != null && timedItem instanceof WheelTimedItem
+                && wheel.unschedule((WheelTimedItem) timedItem)) {
+            return true;
+        }
+        for (int i = 0; i < itemManager.size(); i++) {
+            if (unwrap(itemManager.get(i)) == timedItem) {
+                itemManager.remove(i);
+                concurrentPhase = null;
+                sequentialPhase = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of timed items registered with the manager,
+     * including weakly held items that have not been dropped yet.
+     *
+     * @return number of registered items
+     */
+    public synchronized int getItemCount() {
+        purgeCollected();
+        return itemManager.size() + (wheel == null ? 0 : wheel.size());
+    }
+
+    /**
+     * Sets whether the manager holds its items by weak reference.
+     * <p>
+     * With weak references enabled, an item is only ticked for as long as it
+     * is referenced from elsewhere, e.g. by a room of a building. This
+     * applies to all currently registered items as well as future ones.
+     * Items scheduled on the timing wheel are always held strongly.
+     *
+     * @param weakReferences true to hold items weakly, false to hold them
+     *                       strongly
+     */
+    public synchronized void setWeakReferences(boolean weakReferences) {
+        if (this.weakReferences == weakReferences) {
+            return;
+        }
+        purgeCollected();
+        ArrayList<TimedItem> items = new ArrayList<TimedItem>();
+        for (int i = 0; i < itemManager.size(); i++) {
+            items.add(unwrap(itemManager.get(i)));
+        }
+        this.weakReferences = weakReferences;
+        itemManager.clear();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) != null) {
+                itemManager.add(hold(items.get(i)));
+            }
+        }
+        concurrentPhase = null;
+        sequentialPhase = null;
+    }
+
+    /**
+     * Returns whether the manager holds its items by weak reference.
+     *
+     * @return true if weak references are enabled
+     */
+    public synchronized boolean isWeakReferences() {
+        return weakReferences;
+    }
+
+    /**
+     * Enables the timing wheel. All registered WheelTimedItems, and any
+     * registered afterwards, are moved onto the wheel and are only woken on
+     * the minutes at which their update is due.
+     * <p>
+     * Does nothing if the timing wheel is already enabled.
+     */
+    public synchronized void enableTimingWheel() {
+        if (wheel != null) {
+            return;
+        }
+        wheel = new TimingWheel();
+        ArrayList<TimedItem> remaining = new ArrayList<TimedItem>();
+        for (int i = 0; i < itemManager.size(); i++) {
+            TimedItem item = unwrap(itemManager.get(i));
+            if (item instanceof WheelTimedItem) {
+                wheel.schedule((WheelTimedItem) item);
+            } else if (item != null) {
+                remaining.add(itemManager.get(i));
+            }
+        }
+        itemManager = remaining;
+        concurrentPhase = null;
+        sequentialPhase = null;
+    }
+
+    /**
+     * Disables the timing wheel, moving every item on it back to being
+     * ticked every minute.
+     * <p>
+     * Does nothing if the timing wheel is not enabled.
+     */
+    public synchronized void disableTimingWheel() {
+        if (wheel == null) {
+            return;
+        }
+        List<WheelTimedItem> items = wheel.removeAll();
+        for (int i = 0; i < items.size(); i++) {
+            itemManager.add(hold(items.get(i)));
+        }
+        wheel = null;
+        concurrentPhase = null;
+        sequentialPhase = null;
+    }
+
+    /**
+     * Returns whether the timing wheel is currently enabled.
+     *
+     * @return true if WheelTimedItems are scheduled on a timing wheel
+     */
+    public synchronized boolean isTimingWheelEnabled() {
+        return wheel != null;
+    }
+
+    /**
+     * Enables parallel ticks, using the given pool to tick all registered
+     * ConcurrentTimedItems.
+     * <p>
+     * The end state after each minute is the same as with sequential ticks,
+     * provided no item that is not a ConcurrentTimedItem is registered before
+     * a sensor it reads from.
+     *
+     * @param pool the pool on which to run the concurrent phase of each tick
+     * @throws IllegalArgumentException if pool is null
+     */
+    public synchronized void enableParallelTicks(ForkJoinPool pool)
+            throws IllegalArgumentException {
+        if (pool == null) {
+            throw new IllegalArgumentException();
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Enables parallel ticks on the common ForkJoinPool.
+     */
+    public synchronized void enableParallelTicks() {
+        enableParallelTicks(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Disables parallel ticks, so that all items are ticked one at a time in
+     * registration order.
+     */
+    public synchronized void disableParallelTicks() {
+        this.pool = null;
+    }
+
+    /**
+     * Returns whether parallel ticks are currently enabled.
+     *
+     * @return true if items are ticked across a ForkJoinPool
+     */
+    public synchronized boolean isParallelTickEnabled() {
+        return pool != null;
+    }
+
+    /**
+     * Enables instrumentation, replacing any statistics collected so far.
+     * <p>
+     * From now on every call to elapseOneMinute() is timed and recorded in
+     * the returned statistics, along with the time taken by each item.
+     * Fast-forwards which do not tick minute by minute, see
+     * elapseMinutes(long), are not recorded.
+     *
+     * @param budget tick latency above which a tick counts as an overrun, in
+     *               nanoseconds
+     * @return the new, empty statistics
+     * @throws IllegalArgumentException if budget is less than zero
+     */
+    public synchronized TickStatistics enableStatistics(long budget)
+            throws IllegalArgumentException {
+        statistics = new TickStatistics(budget);
+        return statistics;
+    }
+
+    /**
+     * Disables instrumentation. Statistics collected so far remain readable
+     * through any reference to them, but are no longer updated.
+     */
+    public synchronized void disableStatistics() {
+        statistics = null;
+    }
+
+    /**
+     * Returns the statistics currently being collected.
+     *
+     * @return current statistics; null if instrumentation is disabled
+     */
+    public synchronized TickStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the number of minutes this manager has elapsed since it was
+     * created.
+     *
+     * @return the manager's clock in minutes
+     */
+    public synchronized long getMinutesElapsed() {
+        return minutesElapsed;
+    }
+
+    /**
+     * Sets the manager's clock, e.g. when restoring a checkpoint. This does
+     * not tick any item.
+     *
+     * @param minutesElapsed the new clock value in minutes
+     * @throws IllegalArgumentException if minutesElapsed is less than zero
+     */
+    public synchronized void setMinutesElapsed(long minutesElapsed)
+            throws IllegalArgumentException {
+        if (minutesElapsed < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.minutesElapsed = minutesElapsed;
     }
 
     @Override
-    public void elapseOneMinute() {
+    public synchronized void elapseOneMinute() {
+        TickStatistics stats = statistics;
+        long start = stats == null ? 0 : System.nanoTime();
+        minutesElapsed++;
+        purgeCollected();
+        if (wheel != null) {
+            tick(wheel, stats);
+        }
+        if (pool == null) {
+            for (int i = 0; i < itemManager.size(); i++) {
+                tick(itemManager.get(i), stats);
+            }
+        } else {
+            if (concurrentPhase == null) {
+                splitPhases();
+            }
+            if (concurrentPhase.length > 0) {
+                pool.invoke(new TickTask(concurrentPhase, 0,
+                        concurrentPhase.length, stats));
+            }
+            for (int i = 0; i < sequentialPhase.length; i++) {
+                tick(sequentialPhase[i], stats);
+            }
+        }
+        if (stats != null) {
+            stats.recordTick(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Ticks a single item, timing the call if statistics are given.
+     */
+    private static void tick(TimedItem item, TickStatistics stats) {
+        if (stats == null) {
+            item.elapseOneMinute();
+            return;
+        }
+        TimedItem target = unwrap(item);
+        if (target == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        target.elapseOneMinute();
+        stats.recordItem(target.getClass(), System.nanoTime() - start);
+    }
+
+    /**
+     * Progresses every registered item by the given number of minutes.
+     * <p>
+     * If all items are ConcurrentTimedItems, none of them depends on another,
+     * so each is fast-forwarded on its own with elapseMinutes(long). Otherwise
+     * items such as maintenance schedules must observe every intermediate
+     * minute, and the manager falls back to calling elapseOneMinute()
+     * repeatedly.
+     *
+     * @param minutes the number of minutes to elapse
+     * @throws IllegalArgumentException if minutes is less than zero
+     */
+    @Override
+    public synchronized void elapseMinutes(long minutes)
+            throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException();
+        }
+        purgeCollected();
+        if (concurrentPhase == null) {
+            splitPhases();
+        }
+        if (sequentialPhase.length > 0) {
+            for (long i = 0; i < minutes; i++) {
+                elapseOneMinute();
+            }
+            return;
+        }
+        minutesElapsed += minutes;
+        if (wheel != null) {
+            wheel.elapseMinutes(minutes);
+        }
+        for (int i = 0; i < concurrentPhase.length; i++) {
+            concurrentPhase[i].elapseMinutes(minutes);
+        }
+    }
+
+    /**
+     * Splits the registered items into those that can be ticked concurrently
+     * and those that must be ticked afterwards, keeping registration order.
+     */
+    private void splitPhases() {
+        ArrayList<TimedItem> concurrent = new ArrayList<TimedItem>();
+        ArrayList<TimedItem> sequential = new ArrayList<TimedItem>();
         for (int i = 0; i < itemManager.size(); i++) {
-            itemManager.get(i).elapseOneMinute();
+            TimedItem item = itemManager.get(i);
+            if (item instanceof ConcurrentTimedItem) {
+                concurrent.add(item);
+            } else {
+                sequential.add(item);
+            }
+        }
+        concurrentPhase = concurrent.toArray(new TimedItem[0]);
+        sequentialPhase = sequential.toArray(new TimedItem[0]);
+    }
+
+    /**
+     * Returns the given item, wrapped in a weak reference if weak references
+     * are enabled.
+     */
+    private TimedItem hold(TimedItem item) {
+        if (!weakReferences) {
+            return item;
+        }
+        if (item instanceof ConcurrentTimedItem) {
+            return new WeakConcurrentTimedItem(item, collected);
+        }
+        return new WeakTimedItem(item, collected);
+    }
+
+    /**
+     * Returns the item held by the given list entry, or null if it was held
+     * weakly and has been collected.
+     */
+    private static TimedItem unwrap(TimedItem entry) {
+        if (entry instanceof WeakTimedItem) {
+            return ((WeakTimedItem) entry).reference.get();
+        }
+        return entry;
+    }
+
+    /**
+     * Drops every weakly held item that has been garbage collected.
+     */
+    private void purgeCollected() {
+        boolean anyCollected = false;
+        while (collected.poll() != null) {
+            anyCollected = true;
+        }
+        if (!anyCollected) {
+            return;
+        }
+        ArrayList<TimedItem> remaining = new ArrayList<TimedItem>();
+        for (int i = 0; i < itemManager.size(); i++) {
+            if (unwrap(itemManager.get(i)) != null) {
+                remaining.add(itemManager.get(i));
+            }
+        }
+        itemManager = remaining;
+        concurrentPhase = null;
+        sequentialPhase = null;
+    }
+
+    /**
+     * Holds a timed item by weak reference, ticking it for as long as it has
+     * not been collected.
+     */
+    private static class WeakTimedItem implements TimedItem {
+        private final WeakReference<TimedItem> reference;
+
+        WeakTimedItem(TimedItem item, ReferenceQueue<TimedItem> queue) {
+            this.reference = new WeakReference<TimedItem>(item, queue);
+        }
+
+        @Override
+        public void elapseOneMinute() {
+            TimedItem item = reference.get();
+            if (item != null) {
+                item.elapseOneMinute();
+            }
+        }
+
+        @Override
+        public void elapseMinutes(long minutes) {
+            TimedItem item = reference.get();
+            if (item != null) {
+                item.elapseMinutes(minutes);
+            }
+        }
+    }
+
+    /**
+     * Weak holder for a concurrent timed item, so that it is still ticked in
+     * the concurrent phase.
+     */
+    private static class WeakConcurrentTimedItem extends WeakTimedItem
+            implements ConcurrentTimedItem {
+
+        WeakConcurrentTimedItem(TimedItem item,
+                ReferenceQueue<TimedItem> queue) {
+            super(item, queue);
+        }
+    }
+
+    /**
+     * Ticks a range of items, splitting the range in half until it is small
+     * enough to tick directly.
+     */
+    private static class TickTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TimedItem[] items;
+        private final int from;
+        private final int to;
+        private final TickStatistics stats;
+
+        TickTask(TimedItem[] items, int from, int to, TickStatistics stats) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.stats = stats;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    tick(items[i], stats);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TickTask(items, from, middle, stats),
+                    new TickTask(items, middle, to, stats));
         }
     }
 }
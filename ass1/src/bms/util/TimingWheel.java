@@ -0,0 +1,177 @@
+package bms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A timing wheel which keeps a shared minute clock and wakes each scheduled
+ * item only on the minutes at which its update is due.
+ * <p>
+ * The wheel has a fixed number of slots, one per minute, which must be larger
+ * than the update frequency of any scheduled item. Each minute only the items
+ * in the current slot are visited, so a fleet of sensors updating every five
+ * minutes costs a fifth of the work of ticking every sensor every minute.
+ */
+public class TimingWheel implements TimedItem {
+    // number of slots on the wheel, a power of two above the longest period
+    private static final int SLOTS = 8;
+
+    // the minutes elapsed since this wheel was created
+    private long currentMinute;
+
+    // slot i holds the items due on minutes congruent to i modulo SLOTS
+    private List<ArrayList<WheelTimedItem>> slots;
+
+    // the number of items scheduled on this wheel
+    private int size;
+
+    /**
+     * Creates a new empty timing wheel at minute zero.
+     */
+    public TimingWheel() {
+        this.currentMinute = 0;
+        this.size = 0;
+        this.slots = new ArrayList<ArrayList<WheelTimedItem>>(SLOTS);
+        for (int i = 0; i < SLOTS; i++) {
+            slots.add(new ArrayList<WheelTimedItem>());
+        }
+    }
+
+    /**
+     * Returns the longest update frequency an item on this wheel may have.
+     *
+     * @return maximum update frequency in minutes
+     */
+    public static int getMaxUpdateFrequency() {
+        return SLOTS - 1;
+    }
+
+    /**
+     * Returns the number of minutes this wheel has been ticked.
+     *
+     * @return the wheel's current minute
+     */
+    public long getCurrentMinute() {
+        return currentMinute;
+    }
+
+    /**
+     * Returns the number of items scheduled on this wheel.
+     *
+     * @return number of scheduled items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules an item on this wheel. The item is woken on its next due
+     * minute, and every getUpdateFrequency() minutes after that.
+     *
+     * @param item the item to schedule
+     * @throws IllegalArgumentException if item is null, or its update
+     *                                  frequency is < 1 or greater than
+     *                                  getMaxUpdateFrequency()
+     */
+    public void schedule(WheelTimedItem item) throws IllegalArgumentException {
+        if (item == null || item.getUpdateFrequency() < 1
+                || item.getUpdateFrequency() > getMaxUpdateFrequency()) {
+            throw new IllegalArgumentException();
+        }
+        int delay = item.attachWheel(this);
+        slotFor(currentMinute + delay).add(item);
+        size++;
+    }
+
+    /**
+     * Removes an item from this wheel, detaching it.
+     *
+     * @param item the item to remove
+     * @return true if the item was scheduled on this wheel
+     */
+    public boolean unschedule(WheelTimedItem item) {
+        for (int i = 0; i < SLOTS; i++) {
+            ArrayList<WheelTimedItem> slot = slots.get(i);
+            for (int j = 0; j < slot.size(); j++) {
+                if (slot.get(j) == item) {
+                    slot.remove(j);
+                    item.detachWheel();
+                    size--;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every item from this wheel, detaching each of them.
+     *
+     * @return the items that were scheduled on this wheel
+     */
+    public List<WheelTimedItem> removeAll() {
+        List<WheelTimedItem> removed = new ArrayList<WheelTimedItem>(size);
+        for (int i = 0; i < SLOTS; i++) {
+            ArrayList<WheelTimedItem> slot = slots.get(i);
+            for (int j = 0; j < slot.size(); j++) {
+                slot.get(j).detachWheel();
+                removed.add(slot.get(j));
+            }
+            slot.clear();
+        }
+        size = 0;
+        return removed;
+    }
+
+    /**
+     * Advances the wheel's clock by one minute and wakes every item due on
+     * the new minute, rescheduling each of them one period later.
+     */
+    @Override
+    public void elapseOneMinute() {
+        currentMinute++;
+        ArrayList<WheelTimedItem> due = slotFor(currentMinute);
+
+        // periods are shorter than the wheel, so no woken item lands back
+        // in the slot being visited
+        for (int i = 0; i < due.size(); i++) {
+            WheelTimedItem item = due.get(i);
+            item.elapseUpdate();
+            slotFor(currentMinute + item.getUpdateFrequency()).add(item);
+        }
+        due.clear();
+    }
+
+    /**
+     * Advances the wheel's clock by the given number of minutes.
+     * <p>
+     * Short jumps are ticked minute by minute. Longer jumps take every item
+     * off the wheel, fast-forward it with elapseMinutes(long) and schedule it
+     * again, so the cost does not depend on the number of minutes.
+     *
+     * @param minutes the number of minutes to elapse
+     * @throws IllegalArgumentException if minutes is less than zero
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (minutes <= SLOTS) {
+            for (long i = 0; i < minutes; i++) {
+                elapseOneMinute();
+            }
+            return;
+        }
+        List<WheelTimedItem> items = removeAll();
+        currentMinute += minutes;
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).elapseMinutes(minutes);
+            schedule(items.get(i));
+        }
+    }
+
+    private ArrayList<WheelTimedItem> slotFor(long minute) {
+        return slots.get((int) (minute & (SLOTS - 1)));
+    }
+}
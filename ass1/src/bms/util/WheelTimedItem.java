@@ -0,0 +1,41 @@
+package bms.util;
+
+/**
+ * Denotes a concurrent timed item that only changes state once every
+ * getUpdateFrequency() minutes, and can therefore be scheduled on a
+ * TimingWheel instead of being ticked every minute.
+ * <p>
+ * While attached to a wheel, the item must derive any elapsed-time state from
+ * TimingWheel.getCurrentMinute() rather than counting calls, and must not be
+ * ticked through elapseOneMinute() or elapseMinutes(long).
+ */
+public interface WheelTimedItem extends ConcurrentTimedItem {
+
+    /**
+     * Returns the number of minutes between two updates of this item.
+     *
+     * @return update frequency in minutes
+     */
+    int getUpdateFrequency();
+
+    /**
+     * Called by a timing wheel when this item is scheduled on it.
+     *
+     * @param wheel the wheel which will wake this item from now on
+     * @return the number of minutes until this item's next update, between
+     * one (1) and getUpdateFrequency() inclusive
+     */
+    int attachWheel(TimingWheel wheel);
+
+    /**
+     * Called by a timing wheel when this item is removed from it. The item
+     * must fold the time elapsed on the wheel back into its own state.
+     */
+    void detachWheel();
+
+    /**
+     * Called by the timing wheel on each minute at which this item's update
+     * is due.
+     */
+    void elapseUpdate();
+}
@@ -0,0 +1,80 @@
+package bms.room;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.Sensor;
+import bms.sensors.SensorTypes;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoomTest {
+    private TimedItemManager manager;
+    private Room room;
+    private NoiseSensor noise;
+    private TemperatureSensor temperature;
+    private CarbonDioxideSensor carbonDioxide;
+
+    @Before
+    public void setRoom() throws DuplicateSensorException {
+        manager = new TimedItemManager();
+        room = new Room(101, RoomType.STUDY, 20);
+        noise = new NoiseSensor(new int[]{50}, 1, manager);
+        temperature = new TemperatureSensor(new int[]{20}, manager);
+        carbonDioxide = new CarbonDioxideSensor(new int[]{500}, 1, 600, 500,
+                manager);
+        room.addSensor(temperature);
+        room.addSensor(noise);
+        room.addSensor(carbonDioxide);
+    }
+
+    @Test
+    public void sensorsInAlphabeticalOrder() {
+        List<Sensor> sensors = room.getSensors();
+        assertSame(carbonDioxide, sensors.get(0));
+        assertSame(noise, sensors.get(1));
+        assertSame(temperature, sensors.get(2));
+    }
+
+    @Test
+    public void getSensorByName() {
+        assertSame(noise, room.getSensor("NoiseSensor"));
+        assertNull(room.getSensor("OccupancySensor"));
+        assertNull(room.getSensor("NoSuchSensor"));
+    }
+
+    @Test
+    public void getSensorByClass() {
+        NoiseSensor found = room.getSensor(NoiseSensor.class);
+        assertSame(noise, found);
+        assertSame(temperature, room.getSensor(TemperatureSensor.class));
+        assertNull(new Room(102, RoomType.OFFICE, 10)
+                .getSensor(NoiseSensor.class));
+    }
+
+    @Test
+    public void getSensorByNullName() {
+        assertNull(room.getSensor((String) null));
+    }
+
+    @Test
+    public void getSensorByInterfaceNotRegistered() {
+        int types = SensorTypes.count();
+        assertNull(room.getSensor(HazardSensor.class));
+        assertNull(room.getSensor(Sensor.class));
+        assertEquals(types, SensorTypes.count());
+        assertEquals(-1, SensorTypes.find("HazardSensor"));
+    }
+
+    @Test(expected = DuplicateSensorException.class)
+    public void duplicateType() throws DuplicateSensorException {
+        room.addSensor(new NoiseSensor(new int[]{60}, 1, manager));
+    }
+}
@@ -126,6 +126,77 @@ public class CarbonDioxideSensorTest {
         assertEquals(0, sensor1.getHazardLevel());
     }
 
+    @Test
+    public void elapseMinutesSameAsStepping() {
+        CarbonDioxideSensor stepped = new CarbonDioxideSensor(readings, 3, 11,
+                7);
+        CarbonDioxideSensor jumped = new CarbonDioxideSensor(readings, 3, 11,
+                7);
+        int[] jumps = {0, 1, 2, 5, 13, 40};
+        for (int jump : jumps) {
+            for (int i = 0; i < jump; i++) {
+                stepped.elapseOneMinute();
+            }
+            jumped.elapseMinutes(jump);
+            assertEquals(stepped.getTimeElapsed(), jumped.getTimeElapsed());
+            assertEquals(stepped.getCurrentReading(),
+                    jumped.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void elapseMinutesLong() {
+        sensor1.elapseMinutes(60L * 24 * 7);
+        assertEquals(10080, sensor1.getTimeElapsed());
+        assertEquals(100, sensor1.getCurrentReading());
+        sensor1.elapseMinutes(3);
+        assertEquals(1500, sensor1.getCurrentReading());
+    }
+
+    @Test
+    public void getHazardLevelAfterElapseMinutes() {
+        assertEquals(0, sensor1.getHazardLevel());
+        sensor1.elapseMinutes(5);
+        assertEquals(50, sensor1.getHazardLevel());
+        assertEquals(50, sensor1.getHazardLevel());
+        sensor1.elapseMinutes(4);
+        assertEquals(0, sensor1.getHazardLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elapseMinutesNegative() {
+        sensor1.elapseMinutes(-1);
+    }
+
+    @Test
+    public void elapseMinutesOverflow() {
+        sensor1.elapseMinutes(Integer.MAX_VALUE - 1);
+        try {
+            sensor1.elapseMinutes(3_000_000_000L);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            sensor1.elapseMinutes(2);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(Integer.MAX_VALUE - 1, sensor1.getTimeElapsed());
+        sensor1.elapseMinutes(1);
+        assertEquals(Integer.MAX_VALUE, sensor1.getTimeElapsed());
+    }
+
+    @Test
+    public void readingsInterned() {
+        long shared = ReadingTracePool.getSharedCount();
+        long saved = ReadingTracePool.getBytesSaved();
+        sensor = new CarbonDioxideSensor(readings.clone(), 2, 11, 7);
+        readings[0] = 9000;
+        assertEquals(100, sensor.getCurrentReading());
+        assertEquals(shared + 1, ReadingTracePool.getSharedCount());
+        assertEquals(saved + 32, ReadingTracePool.getBytesSaved());
+    }
+
     @Test
     public void toStringTest() {
         assertEquals("TimedSensor: freq=2, readings=100,1500,4000," +
@@ -0,0 +1,79 @@
+package bms.sensors;
+
+import bms.util.TimedItemManager;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompressedReadingTraceTest {
+
+    @Test
+    public void randomAccess() {
+        Random random = new Random(7023);
+        int[] readings = new int[1000];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+        CompressedReadingTrace trace = new CompressedReadingTrace(readings);
+        assertEquals(1000, trace.length());
+        for (int i = readings.length - 1; i >= 0; i--) {
+            assertEquals(readings[i], trace.get(i));
+        }
+    }
+
+    @Test
+    public void slowlyVaryingCompresses() {
+        Random random = new Random(7023);
+        int[] readings = new int[60 * 24 * 30];
+        int reading = 600;
+        for (int i = 0; i < readings.length; i++) {
+            reading = Math.max(400, reading + random.nextInt(7) - 3);
+            readings[i] = reading;
+        }
+        CompressedReadingTrace trace = new CompressedReadingTrace(readings);
+        for (int i = 0; i < readings.length; i++) {
+            assertEquals(readings[i], trace.get(i));
+        }
+        assertTrue(trace.getCompressionRatio() >= 4);
+    }
+
+    @Test
+    public void constantBlocks() {
+        int[] readings = new int[300];
+        Arrays.fill(readings, 45);
+        readings[299] = 46;
+        CompressedReadingTrace trace = new CompressedReadingTrace(readings);
+        assertEquals(45, trace.get(0));
+        assertEquals(45, trace.get(298));
+        assertEquals(46, trace.get(299));
+    }
+
+    @Test
+    public void sensorUsesTrace() {
+        TimedItemManager manager = new TimedItemManager();
+        NoiseSensor sensor = new NoiseSensor(new CompressedReadingTrace(
+                new int[]{55, 60, 72}), 1, manager);
+        manager.elapseMinutes(2);
+        assertEquals(72, sensor.getCurrentReading());
+        assertEquals(100, sensor.getHazardLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReadingRejectedBySensor() {
+        new TemperatureSensor(new CompressedReadingTrace(new int[]{20, -1}),
+                new TimedItemManager());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRange() {
+        new CompressedReadingTrace(new int[]{1}).get(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void empty() {
+        new CompressedReadingTrace(new int[0]);
+    }
+}
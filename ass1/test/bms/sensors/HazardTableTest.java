@@ -0,0 +1,84 @@
+package bms.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HazardTableTest {
+
+    @Test
+    public void tabledMatchesFunction() {
+        HazardTable table = new HazardTable(10, reading -> reading * 10);
+        for (int reading = 0; reading <= 10; reading++) {
+            assertEquals(reading * 10, table.get(reading));
+        }
+        assertEquals(10, table.getMaxReading());
+    }
+
+    @Test
+    public void outOfRangeFallsBack() {
+        HazardTable table = new HazardTable(3,
+                reading -> Math.min(100, Math.max(0, reading)));
+        assertEquals(0, table.get(-5));
+        assertEquals(50, table.get(50));
+        assertEquals(100, table.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void noiseTableMatchesLoudness() {
+        for (int reading = -10; reading <= 200; reading++) {
+            int expected = (int) Math.floor((float) NoiseSensor
+                    .calculateRelativeLoudness(reading) * 100);
+            assertEquals(Math.min(expected, 100),
+                    NoiseSensor.calculateHazardLevel(reading));
+        }
+    }
+
+    @Test
+    public void carbonDioxideBands() {
+        assertEquals(0, CarbonDioxideSensor.calculateHazardLevel(999));
+        assertEquals(25, CarbonDioxideSensor.calculateHazardLevel(1000));
+        assertEquals(50, CarbonDioxideSensor.calculateHazardLevel(4999));
+        assertEquals(100, CarbonDioxideSensor.calculateHazardLevel(5000));
+        assertEquals(100, CarbonDioxideSensor.calculateHazardLevel(20000));
+    }
+
+    @Test
+    public void bulkMatchesSingle() {
+        int[] readings = new int[10000];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = i;
+        }
+        int[] co2 = CarbonDioxideSensor.calculateHazardLevels(readings);
+        int[] noise = NoiseSensor.calculateHazardLevels(readings);
+        int[] temperature = TemperatureSensor.calculateHazardLevels(readings);
+        int[] occupancy = OccupancySensor.calculateHazardLevels(readings, 40);
+        for (int i = 0; i < readings.length; i++) {
+            assertEquals(CarbonDioxideSensor.calculateHazardLevel(i), co2[i]);
+            assertEquals(NoiseSensor.calculateHazardLevel(i), noise[i]);
+            assertEquals(TemperatureSensor.calculateHazardLevel(i),
+                    temperature[i]);
+            assertEquals(OccupancySensor.calculateHazardLevel(i, 40),
+                    occupancy[i]);
+        }
+        assertEquals(100, OccupancySensor.calculateHazardLevels(
+                new int[]{0}, 0)[0]);
+        assertEquals(100, CarbonDioxideSensor.calculateHazardLevels(
+                new int[]{Integer.MAX_VALUE})[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bulkNegativeReading() {
+        NoiseSensor.calculateHazardLevels(new int[]{50, -1, 60});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bulkShortOutput() {
+        TemperatureSensor.calculateHazardLevels(new int[3], new int[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeRange() {
+        new HazardTable(-1, reading -> 0);
+    }
+}
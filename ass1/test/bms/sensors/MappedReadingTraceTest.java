@@ -0,0 +1,105 @@
+package bms.sensors;
+
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class MappedReadingTraceTest {
+    private File file;
+
+    @Before
+    public void setFile() throws IOException {
+        file = File.createTempFile("trace", ".bmst");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        file = null;
+    }
+
+    @Test
+    public void writeAndMap() throws IOException {
+        int[] readings = new int[10000];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = 400 + (i * 7) % 900;
+        }
+        MappedReadingTrace.write(readings, file.getPath());
+        MappedReadingTrace trace = new MappedReadingTrace(file.getPath());
+        assertEquals(10000, trace.length());
+        assertEquals(400, trace.getMinimum());
+        for (int i = 0; i < readings.length; i++) {
+            assertEquals(readings[i], trace.get(i));
+        }
+    }
+
+    @Test
+    public void sensorReadsMapping() throws IOException {
+        MappedReadingTrace.write(new int[]{30, 40, 70}, file.getPath());
+        TimedItemManager manager = new TimedItemManager();
+        TemperatureSensor sensor = new TemperatureSensor(
+                new MappedReadingTrace(file.getPath()), manager);
+        assertEquals(30, sensor.getCurrentReading());
+        manager.elapseMinutes(2);
+        assertEquals(70, sensor.getCurrentReading());
+        assertEquals(100, sensor.getHazardLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMinimumRejected() throws IOException {
+        MappedReadingTrace.write(new int[]{5, -5}, file.getPath());
+        new NoiseSensor(new MappedReadingTrace(file.getPath()), 1,
+                new TimedItemManager());
+    }
+
+    @Test(expected = IOException.class)
+    public void readingBelowHeaderMinimumRejected() throws IOException {
+        MappedReadingTrace.write(new int[]{30, 40, 70}, file.getPath());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(16 + 4);
+            raf.writeInt(-3);
+        }
+        new MappedReadingTrace(file.getPath());
+    }
+
+    @Test(expected = IOException.class)
+    public void headerMinimumNotInTrace() throws IOException {
+        MappedReadingTrace.write(new int[]{30, 40, 70}, file.getPath());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(12);
+            raf.writeInt(10);
+        }
+        new MappedReadingTrace(file.getPath());
+    }
+
+    @Test(expected = IOException.class)
+    public void notATraceFile() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new FileOutputStream(file))) {
+            out.writeInt(1);
+            out.writeInt(2);
+            out.writeInt(3);
+            out.writeInt(4);
+        }
+        new MappedReadingTrace(file.getPath());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        MappedReadingTrace.write(new int[]{1, 2, 3}, file.getPath());
+        try (RandomAccessFile raf = new RandomAccessFile(
+                file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        new MappedReadingTrace(file.getPath());
+    }
+}
@@ -0,0 +1,72 @@
+package bms.sensors;
+
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReadingListenerTest {
+    private TimedItemManager manager;
+    private CarbonDioxideSensor sensor;
+    private List<Integer> changes;
+    private ReadingListener listener;
+
+    @Before
+    public void setSensor() {
+        manager = new TimedItemManager();
+        sensor = new CarbonDioxideSensor(
+                new int[]{500, 500, 1200, 1500, 6000, 700}, 1, 600, 500,
+                manager);
+        changes = new ArrayList<>();
+        listener = new ReadingListener() {
+            @Override
+            public void readingChanged(TimedSensor changed, int previous) {
+                assertSame(sensor, changed);
+                changes.add(previous);
+                changes.add(changed.getCurrentReading());
+            }
+        };
+    }
+
+    @Test
+    public void firesOnlyOnChange() {
+        sensor.addReadingListener(listener);
+        manager.elapseOneMinute();
+        assertTrue(changes.isEmpty());
+        manager.elapseOneMinute();
+        assertEquals(2, changes.size());
+        assertEquals(500, (int) changes.get(0));
+        assertEquals(1200, (int) changes.get(1));
+    }
+
+    @Test
+    public void thresholdCrossings() {
+        sensor.addReadingListener(50, listener);
+        manager.elapseMinutes(3);
+        assertTrue(changes.isEmpty());
+        manager.elapseOneMinute();
+        assertEquals(2, changes.size());
+        assertEquals(6000, (int) changes.get(1));
+        manager.elapseOneMinute();
+        assertEquals(4, changes.size());
+        assertEquals(700, (int) changes.get(3));
+    }
+
+    @Test
+    public void removeListener() {
+        sensor.addReadingListener(25, listener);
+        assertTrue(sensor.removeReadingListener(listener));
+        assertFalse(sensor.removeReadingListener(listener));
+        manager.elapseMinutes(6);
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullListener() {
+        sensor.addReadingListener(null);
+    }
+}
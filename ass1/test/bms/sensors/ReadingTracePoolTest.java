@@ -0,0 +1,33 @@
+package bms.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReadingTracePoolTest {
+
+    @Test
+    public void sharesIdenticalReadings() {
+        int[] readings = {17, 4, 1999, 23};
+        ArrayReadingTrace first = ReadingTracePool.intern(readings);
+        ArrayReadingTrace second = ReadingTracePool.intern(readings.clone());
+        assertSame(first, second);
+        readings[0] = 5;
+        assertEquals(17, first.get(0));
+    }
+
+    @Test
+    public void dropsCollectedTraces() throws InterruptedException {
+        int before = ReadingTracePool.size();
+        for (int i = 0; i < 100; i++) {
+            ReadingTracePool.intern(new int[]{-7, 31, i, 1234567});
+        }
+        assertTrue(ReadingTracePool.size() >= before + 100);
+        for (int attempt = 0; attempt < 50
+                && ReadingTracePool.size() >= before + 100; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertTrue(ReadingTracePool.size() < before + 100);
+    }
+}
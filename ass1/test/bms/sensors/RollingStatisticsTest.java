@@ -0,0 +1,113 @@
+package bms.sensors;
+
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+public class RollingStatisticsTest {
+    private long minute;
+    private LongSupplier clock;
+
+    @Before
+    public void setClock() {
+        minute = 0;
+        clock = new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return minute;
+            }
+        };
+    }
+
+    @Test
+    public void initialReading() {
+        RollingStatistics stats = new RollingStatistics(15, clock, 40);
+        assertEquals(40, stats.getMin());
+        assertEquals(40, stats.getMax());
+        assertEquals(40.0, stats.getMean(), 1e-9);
+        assertEquals(0.0, stats.getVariance(), 1e-9);
+        assertEquals(40.0, stats.getEwma(), 1e-9);
+    }
+
+    @Test
+    public void partialWindow() {
+        RollingStatistics stats = new RollingStatistics(10, clock, 10);
+        minute = 2;
+        stats.record(40);
+        minute = 3;
+        // minutes 0-3 are 10, 10, 40, 40
+        assertEquals(25.0, stats.getMean(), 1e-9);
+        assertEquals(225.0, stats.getVariance(), 1e-9);
+        assertEquals(10, stats.getMin());
+        assertEquals(40, stats.getMax());
+    }
+
+    @Test
+    public void matchesEveryMinute() {
+        Random random = new Random(7023);
+        int window = 15;
+        RollingStatistics stats = new RollingStatistics(window, clock, 500);
+        List<Integer> perMinute = new ArrayList<>();
+        int reading = 500;
+        double ewma = reading;
+        double alpha = 2.0 / (window + 1);
+        for (minute = 0; minute < 500; minute++) {
+            if (minute > 0 && random.nextInt(3) == 0) {
+                reading = random.nextInt(2000);
+                stats.record(reading);
+            }
+            perMinute.add(reading);
+            if (minute > 0) {
+                ewma = alpha * reading + (1 - alpha) * ewma;
+            }
+            int from = Math.max(0, perMinute.size() - window);
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            double sum = 0;
+            double squares = 0;
+            for (int i = from; i < perMinute.size(); i++) {
+                int value = perMinute.get(i);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+                squares += (double) value * value;
+            }
+            int count = perMinute.size() - from;
+            double mean = sum / count;
+            assertEquals(min, stats.getMin());
+            assertEquals(max, stats.getMax());
+            assertEquals(mean, stats.getMean(), 1e-6);
+            assertEquals(squares / count - mean * mean, stats.getVariance(),
+                    1e-3);
+            assertEquals(ewma, stats.getEwma(), 1e-6);
+        }
+    }
+
+    @Test
+    public void sensorStatistics() {
+        TimedItemManager manager = new TimedItemManager();
+        CarbonDioxideSensor sensor = new CarbonDioxideSensor(
+                new int[]{100, 1500, 4000, 5000}, 2, 600, 500, manager);
+        RollingStatistics stats = sensor.getStatistics(4);
+        assertSame(stats, sensor.getStatistics(4));
+        for (int i = 0; i < 5; i++) {
+            manager.elapseOneMinute();
+        }
+        // minutes 2-5 are 1500, 1500, 4000, 4000
+        assertEquals(2750.0, stats.getMean(), 1e-9);
+        assertEquals(1500, stats.getMin());
+        assertEquals(4000, stats.getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroWindow() {
+        new RollingStatistics(0, clock, 0);
+    }
+}
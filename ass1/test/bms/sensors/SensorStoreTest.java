@@ -0,0 +1,119 @@
+package bms.sensors;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SensorStoreTest {
+    private TimedItemManager manager;
+    private SensorStore store;
+    private int[] readings;
+
+    @Before
+    public void setStore() {
+        manager = new TimedItemManager();
+        store = new SensorStore(manager);
+        readings = new int[]{40, 75, 90, 60, 82};
+    }
+
+    @After
+    public void tearDown() {
+        manager = null;
+        store = null;
+        readings = null;
+    }
+
+    @Test
+    public void sameAsTimedSensor() {
+        NoiseSensor expected = new NoiseSensor(readings, 3, manager);
+        SensorStore.StoredNoiseSensor stored =
+                store.addNoiseSensor(readings, 3);
+        assertEquals(1, store.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(expected.getCurrentReading(),
+                    stored.getCurrentReading());
+            assertEquals(expected.getHazardLevel(), stored.getHazardLevel());
+            assertEquals(expected.getTimeElapsed(), stored.getTimeElapsed());
+            manager.elapseOneMinute();
+        }
+        manager.elapseMinutes(1000);
+        assertEquals(expected.getCurrentReading(), stored.getCurrentReading());
+        manager.elapseOneMinute();
+        assertEquals(expected.getCurrentReading(), stored.getCurrentReading());
+        assertEquals(expected.toString(), stored.toString());
+    }
+
+    @Test
+    public void rowsAddedLater() {
+        for (int i = 0; i < 40; i++) {
+            store.addTemperatureSensor(readings);
+            manager.elapseOneMinute();
+        }
+        SensorStore.StoredCarbonDioxideSensor co2 =
+                store.addCarbonDioxideSensor(new int[]{900, 1500}, 2, 600,
+                        200);
+        assertEquals(41, store.size());
+        assertEquals(0, co2.getTimeElapsed());
+        assertEquals(0, co2.getHazardLevel());
+        manager.elapseMinutes(2);
+        assertEquals(25, co2.getHazardLevel());
+        assertEquals(readings[42 % readings.length],
+                store.getCurrentReading(0));
+    }
+
+    @Test
+    public void viewsHaveTheirSensorType() throws DuplicateSensorException {
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        SensorStore.StoredOccupancySensor occupancy =
+                store.addOccupancySensor(readings, 2, 100);
+        SensorStore.StoredNoiseSensor noise = store.addNoiseSensor(readings, 1);
+        assertEquals(OccupancySensor.class, occupancy.getSensorType());
+        room.addSensor(occupancy);
+        room.addSensor(new CarbonDioxideSensor(new int[]{700}, 1, 600, 200,
+                manager));
+        room.addSensor(noise);
+        assertSame(occupancy, room.getSensor("OccupancySensor"));
+        assertSame(noise, room.getSensor("NoiseSensor"));
+        assertNull(room.getSensor(OccupancySensor.class));
+        assertSame(noise, room.getSensors().get(1));
+        try {
+            room.addSensor(new OccupancySensor(readings, 2, 100, manager));
+            fail();
+        } catch (DuplicateSensorException expected) {
+        }
+        assertEquals(3, room.getSensors().size());
+    }
+
+    @Test
+    public void identicalReadingsStoredOnce() {
+        store.addNoiseSensor(readings, 3);
+        store.addTemperatureSensor(readings.clone());
+        assertEquals(readings.length, store.getReadingsStored());
+        store.addNoiseSensor(new int[]{40, 75}, 3);
+        assertEquals(readings.length + 2, store.getReadingsStored());
+        store.addOccupancySensor(new int[]{40, 75}, 1, 100);
+        assertEquals(readings.length + 2, store.getReadingsStored());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacity() {
+        store.addOccupancySensor(readings, 2, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elapseMinutesOverflow() {
+        store.addNoiseSensor(readings, 3);
+        store.elapseMinutes(3_000_000_000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidReadings() {
+        store.addNoiseSensor(new int[]{}, 2);
+    }
+}
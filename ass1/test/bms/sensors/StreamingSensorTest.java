@@ -0,0 +1,128 @@
+package bms.sensors;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StreamingSensorTest {
+    private TimedItemManager manager;
+    private StreamingSensor sensor;
+
+    @Before
+    public void setSensor() {
+        manager = new TimedItemManager();
+        sensor = new StreamingSensor(CarbonDioxideSensor.class, 3, 400,
+                CarbonDioxideSensor::calculateHazardLevel, manager);
+    }
+
+    @After
+    public void tearDown() {
+        manager = null;
+        sensor = null;
+    }
+
+    @Test
+    public void initialReading() {
+        assertEquals(400, sensor.getCurrentReading());
+        assertEquals(0, sensor.getHazardLevel());
+        assertEquals(4, sensor.getCapacity());
+        assertEquals(1, manager.getItemCount());
+    }
+
+    @Test
+    public void latestReadingTakenEachMinute() {
+        assertTrue(sensor.offer(1200));
+        assertTrue(sensor.offer(2500));
+        assertEquals(400, sensor.getCurrentReading());
+        assertEquals(2, sensor.getPendingCount());
+        manager.elapseOneMinute();
+        assertEquals(2500, sensor.getCurrentReading());
+        assertEquals(50, sensor.getHazardLevel());
+        assertEquals(0, sensor.getPendingCount());
+        manager.elapseOneMinute();
+        assertEquals(2500, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void fullBufferDrops() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(sensor.offer(1000 + i));
+        }
+        assertFalse(sensor.offer(6000));
+        assertEquals(1, sensor.getDroppedCount());
+        manager.elapseMinutes(5);
+        assertEquals(1003, sensor.getCurrentReading());
+        assertTrue(sensor.offer(6000));
+        manager.elapseOneMinute();
+        assertEquals(100, sensor.getHazardLevel());
+    }
+
+    @Test
+    public void concurrentIngest() throws InterruptedException {
+        final int count = 100000;
+        final StreamingSensor stream = new StreamingSensor(NoiseSensor.class,
+                16, 0, NoiseSensor::calculateHazardLevel, manager);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; i <= count; i++) {
+                    while (!stream.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.start();
+        int last = 0;
+        while (last != count) {
+            stream.elapseOneMinute();
+            int reading = stream.getCurrentReading();
+            assertTrue(reading >= last);
+            last = reading;
+        }
+        producer.join();
+        assertEquals(0, stream.getPendingCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReading() {
+        sensor.offer(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new StreamingSensor(CarbonDioxideSensor.class, 0, 0,
+                CarbonDioxideSensor::calculateHazardLevel, manager);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullSensorType() {
+        new StreamingSensor(null, 4, 0,
+                CarbonDioxideSensor::calculateHazardLevel, manager);
+    }
+
+    @Test
+    public void treatedAsStreamedType() throws DuplicateSensorException {
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        StreamingSensor occupancy = new StreamingSensor(OccupancySensor.class,
+                4, 3, reading -> Math.min(reading * 10, 100), manager);
+        room.addSensor(sensor);
+        room.addSensor(occupancy);
+        assertSame(sensor, room.getSensor("CarbonDioxideSensor"));
+        assertSame(occupancy, room.getSensor("OccupancySensor"));
+        try {
+            room.addSensor(new StreamingSensor(OccupancySensor.class, 4, 0,
+                    reading -> 0, manager));
+            fail();
+        } catch (DuplicateSensorException expected) {
+        }
+        assertEquals("StreamingSensor: capacity=4, reading=3, "
+                + "type=OccupancySensor", occupancy.toString());
+    }
+}
@@ -0,0 +1,86 @@
+package bms.sensors;
+
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimedSensorTest {
+    private TimedItemManager manager;
+
+    @Before
+    public void setManager() {
+        manager = new TimedItemManager();
+    }
+
+    @Test
+    public void hazardLevelMemoised() {
+        CountingSensor sensor =
+                new CountingSensor(new int[]{10, 10, 30}, 1, manager);
+        assertEquals(10, sensor.getMemoisedHazardLevel());
+        assertEquals(10, sensor.getMemoisedHazardLevel());
+        assertEquals(1, sensor.computeCalls);
+
+        // moving to an equal reading keeps the memoised level
+        manager.elapseOneMinute();
+        assertEquals(10, sensor.getMemoisedHazardLevel());
+        assertEquals(1, sensor.computeCalls);
+
+        manager.elapseOneMinute();
+        assertEquals(30, sensor.getMemoisedHazardLevel());
+        assertEquals(30, sensor.getMemoisedHazardLevel());
+        assertEquals(2, sensor.computeCalls);
+
+        manager.elapseMinutes(3);
+        assertEquals(30, sensor.getMemoisedHazardLevel());
+        assertEquals(2, sensor.computeCalls);
+    }
+
+    @Test
+    public void tickDuringComputeNotMemoisedForNewReading() {
+        CountingSensor sensor =
+                new CountingSensor(new int[]{10, 30}, 1, manager);
+        // the reading moves on while the level of the old one is computed
+        sensor.onCompute = manager::elapseOneMinute;
+        assertEquals(10, sensor.getMemoisedHazardLevel());
+        sensor.onCompute = null;
+        assertEquals(30, sensor.getCurrentReading());
+        assertEquals(30, sensor.getMemoisedHazardLevel());
+        assertEquals(2, sensor.computeCalls);
+    }
+
+    @Test
+    public void defaultHazardLevel() {
+        TimedSensor sensor = new TimedSensor(new int[]{40, 75}, 1, manager) {
+        };
+        assertEquals(0, sensor.getMemoisedHazardLevel());
+        manager.elapseOneMinute();
+        assertEquals(75, sensor.getCurrentReading());
+        assertEquals(0, sensor.getMemoisedHazardLevel());
+    }
+
+    /**
+     * Counts the calls made to computeHazardLevel(int).
+     */
+    private static class CountingSensor extends TimedSensor {
+        private int computeCalls = 0;
+
+        // run on each call to computeHazardLevel(int), if set
+        private Runnable onCompute;
+
+        CountingSensor(int[] readings, int frequency,
+                TimedItemManager manager) {
+            super(readings, frequency, manager);
+        }
+
+        @Override
+        protected int computeHazardLevel(int reading) {
+            computeCalls++;
+            if (onCompute != null) {
+                onCompute.run();
+            }
+            return reading;
+        }
+    }
+}
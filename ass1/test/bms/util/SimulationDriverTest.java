@@ -0,0 +1,187 @@
+package bms.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SimulationDriverTest {
+    private static final double SPEED = SimulationDriver.getMaxSpeed();
+
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setExecutor() {
+        executor = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullClock() {
+        new SimulationDriver(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroSpeed() {
+        new SimulationDriver(new CountingItem(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void speedTooHigh() {
+        new SimulationDriver(new CountingItem(), SPEED * 2);
+    }
+
+    @Test
+    public void tickPeriod() {
+        SimulationDriver driver =
+                new SimulationDriver(new CountingItem(), 60, executor);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), driver.getTickPeriod());
+    }
+
+    @Test
+    public void advancesClock() throws InterruptedException {
+        CountingItem clock = new CountingItem();
+        SimulationDriver driver = new SimulationDriver(clock, SPEED, executor);
+        assertFalse(driver.isRunning());
+        driver.start();
+        assertTrue(driver.isRunning());
+        waitFor(clock, 5);
+        driver.stop();
+        assertFalse(driver.isRunning());
+        Thread.sleep(50);
+        assertEquals(driver.getMinutesElapsed(), clock.minutes.get());
+        assertTrue(driver.getMinutesElapsed() >= 5);
+        assertNull(driver.getFailure());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startTwice() {
+        SimulationDriver driver =
+                new SimulationDriver(new CountingItem(), 1, executor);
+        driver.start();
+        try {
+            driver.start();
+        } finally {
+            driver.stop();
+        }
+    }
+
+    @Test
+    public void ownExecutorShutDownOnStop() {
+        SimulationDriver driver = new SimulationDriver(new CountingItem(), 1);
+        driver.start();
+        driver.stop();
+        try {
+            driver.start();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void stopsOnException() throws InterruptedException {
+        final RuntimeException thrown = new RuntimeException();
+        CountingItem clock = new CountingItem() {
+            @Override
+            public void elapseOneMinute() {
+                if (minutes.get() == 2) {
+                    throw thrown;
+                }
+                super.elapseOneMinute();
+            }
+
+            @Override
+            public void elapseMinutes(long count) {
+                if (minutes.get() + count > 2) {
+                    throw thrown;
+                }
+                super.elapseMinutes(count);
+            }
+        };
+        SimulationDriver driver = new SimulationDriver(clock, SPEED, executor);
+        driver.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (driver.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(driver.isRunning());
+        assertSame(thrown, driver.getFailure());
+        assertEquals(2, clock.minutes.get());
+    }
+
+    @Test
+    public void restartWhileTickRunning() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        CountingItem clock = new CountingItem() {
+            @Override
+            public void elapseOneMinute() {
+                if (minutes.get() == 0 && entered.getCount() > 0) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.elapseOneMinute();
+            }
+        };
+        SimulationDriver driver = new SimulationDriver(clock, SPEED, executor);
+        driver.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // restart while the first tick is blocked, then let it finish
+        driver.stop();
+        driver.start();
+        waitFor(clock, 5);
+        release.countDown();
+        Thread.sleep(50);
+        driver.stop();
+        Thread.sleep(50);
+
+        // the old tick ran once and scheduled no further ticks
+        assertEquals(driver.getMinutesElapsed() + 1, clock.minutes.get());
+    }
+
+    /**
+     * Waits until the given clock has elapsed at least the given number of
+     * minutes, or five seconds have passed.
+     */
+    private static void waitFor(CountingItem clock, long minutes)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (clock.minutes.get() < minutes
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Counts the simulated minutes elapsed on it.
+     */
+    private static class CountingItem implements TimedItem {
+        final AtomicLong minutes = new AtomicLong();
+
+        @Override
+        public void elapseOneMinute() {
+            minutes.incrementAndGet();
+        }
+
+        @Override
+        public void elapseMinutes(long count) {
+            minutes.addAndGet(count);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package bms.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimeSeriesTest {
+    private TimeSeries series;
+
+    @Before
+    public void setSeries() {
+        series = new TimeSeries();
+    }
+
+    @Test
+    public void minuteValues() {
+        for (int minute = 1; minute <= 10; minute++) {
+            series.append(minute, minute * 10);
+        }
+        List<TimeSeries.Sample> samples =
+                series.query(TimeSeries.Resolution.MINUTE, 3, 6);
+        assertEquals(3, samples.size());
+        assertEquals(3, samples.get(0).getMinute());
+        assertEquals(30, samples.get(0).getMin());
+        assertEquals(50.0, samples.get(2).getMean(), 1e-9);
+        assertEquals(10, series.getLastMinute());
+    }
+
+    @Test
+    public void rollups() {
+        for (int minute = 0; minute < 120; minute++) {
+            series.append(minute, minute % 10);
+        }
+        List<TimeSeries.Sample> fives =
+                series.query(TimeSeries.Resolution.FIVE_MINUTES, 0, 120);
+        assertEquals(24, fives.size());
+        assertEquals(5, fives.get(1).getMinute());
+        assertEquals(5, fives.get(1).getMin());
+        assertEquals(9, fives.get(1).getMax());
+        assertEquals(7.0, fives.get(1).getMean(), 1e-9);
+        List<TimeSeries.Sample> hours =
+                series.query(TimeSeries.Resolution.HOUR, 0, 1000);
+        assertEquals(2, hours.size());
+        assertEquals(60, hours.get(1).getMinute());
+        assertEquals(60, hours.get(1).getCount());
+        assertEquals(4.5, hours.get(1).getMean(), 1e-9);
+    }
+
+    @Test
+    public void gapsAreSkipped() {
+        series.append(1, 5);
+        series.append(1000, 6);
+        List<TimeSeries.Sample> samples =
+                series.query(TimeSeries.Resolution.MINUTE, 0, 2000);
+        assertEquals(2, samples.size());
+        assertEquals(1000, samples.get(1).getMinute());
+        assertTrue(series.query(TimeSeries.Resolution.MINUTE, 5, 5)
+                .isEmpty());
+    }
+
+    @Test
+    public void retentionBoundsChunks() {
+        series = new TimeSeries(60, 600, 6000);
+        for (int minute = 0; minute < 60 * 24 * 10; minute++) {
+            series.append(minute, 1);
+        }
+        assertTrue(series.getChunkCount(TimeSeries.Resolution.MINUTE) <= 2);
+        assertTrue(series.query(TimeSeries.Resolution.MINUTE, 0, 1000)
+                .isEmpty());
+        assertEquals(60, series.query(TimeSeries.Resolution.MINUTE,
+                60 * 24 * 10 - 60, 60 * 24 * 10).size());
+        assertEquals(240, series.query(TimeSeries.Resolution.HOUR, 0,
+                60 * 24 * 10).size());
+    }
+
+    @Test
+    public void recorderSamplesEachMinute() {
+        TimedItemManager manager = new TimedItemManager();
+        final int[] value = {0};
+        manager.registerTimedItem(new TimedItem() {
+            @Override
+            public void elapseOneMinute() {
+                value[0]++;
+            }
+        });
+        HistoryRecorder recorder = new HistoryRecorder(manager);
+        recorder.track("counter", () -> value[0]);
+        manager.elapseMinutes(30);
+        TimeSeries history = recorder.getSeries("counter");
+        assertEquals(30, history.getLastMinute());
+        List<TimeSeries.Sample> samples =
+                history.query(TimeSeries.Resolution.MINUTE, 0, 31);
+        assertEquals(30, samples.size());
+        assertEquals(30, samples.get(29).getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendOutOfOrder() {
+        series.append(5, 1);
+        series.append(5, 2);
+    }
+}
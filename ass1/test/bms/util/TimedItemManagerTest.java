@@ -0,0 +1,175 @@
+package bms.util;
+
+import bms.sensors.NoiseSensor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimedItemManagerTest {
+    private TimedItemManager manager;
+    private List<NoiseSensor> sensors;
+
+    @Before
+    public void setManager() {
+        manager = new TimedItemManager();
+        sensors = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            sensors.add(new NoiseSensor(new int[]{50, 60, 70}, i % 5 + 1,
+                    manager));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        manager.disableParallelTicks();
+        manager.disableTimingWheel();
+        manager.setWeakReferences(false);
+        sensors = null;
+    }
+
+    @Test
+    public void parallelTickEnabled() {
+        assertFalse(manager.isParallelTickEnabled());
+        manager.enableParallelTicks();
+        assertTrue(manager.isParallelTickEnabled());
+        manager.disableParallelTicks();
+        assertFalse(manager.isParallelTickEnabled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void enableParallelTicksNullPool() {
+        manager.enableParallelTicks(null);
+    }
+
+    @Test
+    public void parallelTickSameAsSequential() {
+        manager.enableParallelTicks();
+        for (int i = 0; i < 7; i++) {
+            manager.elapseOneMinute();
+        }
+        int[] readings = {50, 60, 70};
+        for (int i = 0; i < sensors.size(); i++) {
+            NoiseSensor sensor = sensors.get(i);
+            assertEquals(7, sensor.getTimeElapsed());
+            int position = (7 / sensor.getUpdateFrequency()) % 3;
+            assertEquals(readings[position], sensor.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void timingWheelSameAsSequential() {
+        manager.elapseOneMinute();
+        manager.enableTimingWheel();
+        assertTrue(manager.isTimingWheelEnabled());
+        for (int i = 0; i < 6; i++) {
+            manager.elapseOneMinute();
+        }
+        NoiseSensor late =
+                new NoiseSensor(new int[]{50, 60, 70}, 2, manager);
+        int[] readings = {50, 60, 70};
+        for (int i = 0; i < sensors.size(); i++) {
+            NoiseSensor sensor = sensors.get(i);
+            assertEquals(7, sensor.getTimeElapsed());
+            int position = (7 / sensor.getUpdateFrequency()) % 3;
+            assertEquals(readings[position], sensor.getCurrentReading());
+        }
+        manager.elapseOneMinute();
+        manager.elapseOneMinute();
+        manager.disableTimingWheel();
+        manager.elapseOneMinute();
+        assertEquals(3, late.getTimeElapsed());
+        assertEquals(60, late.getCurrentReading());
+    }
+
+    @Test
+    public void unregisterTimedItem() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{50, 60}, 1, manager);
+        int count = manager.getItemCount();
+        assertTrue(manager.unregisterTimedItem(sensor));
+        assertEquals(count - 1, manager.getItemCount());
+        assertFalse(manager.unregisterTimedItem(sensor));
+        manager.elapseOneMinute();
+        assertEquals(0, sensor.getTimeElapsed());
+        assertEquals(50, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void unregisterTimedItemWeakOnWheel() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{50, 60}, 1, manager);
+        manager.setWeakReferences(true);
+        manager.elapseOneMinute();
+        assertEquals(1, sensor.getTimeElapsed());
+        manager.enableTimingWheel();
+        assertTrue(manager.unregisterTimedItem(sensor));
+        manager.elapseOneMinute();
+        assertEquals(1, sensor.getTimeElapsed());
+        assertEquals(60, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void independentManagers() throws InterruptedException {
+        final TimedItemManager first = new TimedItemManager();
+        final TimedItemManager second = new TimedItemManager();
+        NoiseSensor firstSensor = new NoiseSensor(new int[]{50, 60}, 1, first);
+        NoiseSensor secondSensor =
+                new NoiseSensor(new int[]{50, 60}, 1, second);
+        assertSame(first, firstSensor.getTimedItemManager());
+        assertEquals(1, first.getItemCount());
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                second.elapseMinutes(3);
+            }
+        });
+        thread.start();
+        first.elapseOneMinute();
+        thread.join();
+        assertEquals(1, firstSensor.getTimeElapsed());
+        assertEquals(3, secondSensor.getTimeElapsed());
+    }
+
+    @Test
+    public void bindToCurrentThread() {
+        TimedItemManager other = new TimedItemManager();
+        other.bindToCurrentThread();
+        try {
+            assertSame(other, TimedItemManager.getInstance());
+            NoiseSensor sensor = new NoiseSensor(new int[]{50}, 1);
+            assertSame(other, sensor.getTimedItemManager());
+        } finally {
+            TimedItemManager.unbindFromCurrentThread();
+        }
+        assertNotSame(other, TimedItemManager.getInstance());
+    }
+
+    @Test
+    public void statistics() {
+        TimedItemManager other = new TimedItemManager();
+        new NoiseSensor(new int[]{50}, 1, other);
+        new NoiseSensor(new int[]{50}, 1, other);
+        assertNull(other.getStatistics());
+        TickStatistics stats = other.enableStatistics(0);
+        other.elapseOneMinute();
+        other.elapseOneMinute();
+        assertSame(stats, other.getStatistics());
+        assertEquals(2, stats.getTickCount());
+        assertEquals(2, stats.getOverrunCount());
+        assertEquals(Long.valueOf(4),
+                stats.getCallCounts().get("NoiseSensor"));
+        long total = 0;
+        for (long count : stats.getLatencyHistogram()) {
+            total += count;
+        }
+        assertEquals(2, total);
+        other.disableStatistics();
+        other.elapseOneMinute();
+        assertNull(other.getStatistics());
+        assertEquals(2, stats.getTickCount());
+    }
+}
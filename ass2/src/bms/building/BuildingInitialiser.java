@@ -2,12 +2,15 @@ package bms.building;
 
 import bms.exceptions.FileFormatException;
 import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.hazardevaluation.CompiledWeightingBasedHazardEvaluator;
 import bms.hazardevaluation.HazardEvaluator;
-import bms.hazardevaluation.RuleBasedHazardEvaluator;
-import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.hazardevaluation.IncrementalRuleBasedHazardEvaluator;
+import bms.hazardevaluation.RuleHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.TimedItemManager;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -83,6 +86,57 @@ public class BuildingInitialiser {
     }
 
 
+    /**
+     * Loads a list of buildings from a save file with the given filename,
+     * registering all of their timed items with the given timed item manager
+     * instead of the default one.
+     * <p>
+     * This allows several campuses to be loaded into independent simulations.
+     *
+     * @param filename path of the file from which to load a list of buildings
+     * @param manager the timed item manager which ticks the loaded buildings
+     * @return a list containing all the buildings loaded from the file
+     * @throws IOException if an IOException is encountered when calling any
+     * IO methods
+     * @throws FileFormatException if the file format of the given file
+     * is invalid according to the rules above
+     * @see #loadBuildings(String)
+     */
+    public static List<Building> loadBuildings(String filename,
+            TimedItemManager manager) throws IOException, FileFormatException {
+        TimedItemManager previous = TimedItemManager.getInstance();
+        manager.bindToCurrentThread();
+        try {
+            return loadBuildings(filename);
+        } finally {
+            previous.bindToCurrentThread();
+        }
+    }
+
+    /**
+     * Ends the time in the simulation of buildings loaded earlier, e.g.
+     * before a campus is reloaded from a save file.
+     * <p>
+     * Every sensor in the buildings and every floor's maintenance schedule
+     * is unregistered from its timed item manager. This is required to free
+     * them when the manager's timing wheel is enabled, as items on the wheel
+     * are held strongly even if the manager holds its other items weakly.
+     *
+     * @param buildings the buildings to unload
+     */
+    public static void unloadBuildings(List<Building> buildings) {
+        for (Building building : buildings) {
+            building.unregisterTimedItems();
+            for (Floor floor : building.getFloors()) {
+                MaintenanceSchedule schedule = floor.getMaintenanceSchedule();
+                if (schedule != null) {
+                    schedule.unregister();
+                }
+            }
+        }
+    }
+
+
     private static Floor readFloor(BufferedReader r) throws IOException,
             FileFormatException {
         String temp = r.readLine();
@@ -148,6 +202,13 @@ public class BuildingInitialiser {
         return floor;
     }
 
+    /**
+     * Returns whether a room's evaluator field holds a hazard rule.
+     */
+    private static boolean isRule(String evaluatorField) {
+        return evaluatorField.startsWith(RuleHazardEvaluator.PREFIX);
+    }
+
     private static Room readRoom(BufferedReader r) throws IOException,
             FileFormatException {
         String temp = r.readLine();
@@ -179,8 +240,9 @@ public class BuildingInitialiser {
             String[] sensorInformation = BuildingInitialiser.loadSensor(r);
 
             if (lengthOfInformation == 4 || (lengthOfInformation == 5 &&
-                    roomInfo[4].equals("RuleBased"))) {
-                if (lengthOfInformation == 4) {
+                    (roomInfo[4].equals("RuleBased")
+                    || isRule(roomInfo[4])))) {
+                if (lengthOfInformation == 4 || isRule(roomInfo[4])) {
                     try {
                         sensor = readSensor(sensorInformation);
                         room.addSensor(sensor);
@@ -210,9 +272,23 @@ public class BuildingInitialiser {
         }
         if (lengthOfInformation == 5) {
             if (roomInfo[4].equals("RuleBased")) {
-                evaluator = new RuleBasedHazardEvaluator(forRuleBase);
+                evaluator = new IncrementalRuleBasedHazardEvaluator(
+                        forRuleBase);
             } else if (roomInfo[4].equals("WeightingBased")) {
-                evaluator = new WeightingBasedHazardEvaluator(forWeightBase);
+                evaluator = new CompiledWeightingBasedHazardEvaluator(
+                        forWeightBase);
+            } else if (isRule(roomInfo[4])) {
+                for (Sensor roomSensor : room.getSensors()) {
+                    if (roomSensor instanceof HazardSensor) {
+                        forRuleBase.add((HazardSensor) roomSensor);
+                    }
+                }
+                try {
+                    evaluator = new RuleHazardEvaluator(roomInfo[4].substring(
+                            RuleHazardEvaluator.PREFIX.length()), forRuleBase);
+                } catch (IllegalArgumentException e) {
+                    throw new FileFormatException();
+                }
             } else {
                 throw new FileFormatException();
             }
@@ -230,7 +306,6 @@ public class BuildingInitialiser {
                 sensorInformation[sensorInformation.length - 1].
                         split("@");
         HazardSensor hazardSensor;
-        Sensor sensor;
         Room room = r;
         if (sensorInformation.length != 2) {
             String[] readingString = sensorInformation[1].split(",");
@@ -253,13 +328,10 @@ public class BuildingInitialiser {
                     int variationLimit =
                             Integer.parseInt(lastElementSplit[0]);
                     int weight = Integer.parseInt(lastElementSplit[1]);
-                    sensor = new CarbonDioxideSensor(reading,
-                            updateFrequency,
-                            idealValue, variationLimit);
-                    room.addSensor(sensor);
                     hazardSensor = new CarbonDioxideSensor(reading,
                             updateFrequency,
                             idealValue, variationLimit);
+                    room.addSensor(hazardSensor);
                     forWeightBase.put(hazardSensor, weight);
                 } catch (Exception e) {
                     throw new FileFormatException();
@@ -271,11 +343,9 @@ public class BuildingInitialiser {
                     int capacity =
                             Integer.parseInt(lastElementSplit[0]);
                     int weight = Integer.parseInt(lastElementSplit[1]);
-                    sensor = new OccupancySensor(reading,
-                            updateFrequency, capacity);
-                    room.addSensor(sensor);
                     hazardSensor = new OccupancySensor(reading,
                             updateFrequency, capacity);
+                    room.addSensor(hazardSensor);
                     forWeightBase.put(hazardSensor, weight);
                 } catch (Exception e) {
                     throw new FileFormatException();
@@ -285,10 +355,8 @@ public class BuildingInitialiser {
                     int updateFrequency =
                             Integer.parseInt(lastElementSplit[0]);
                     int weight = Integer.parseInt(lastElementSplit[1]);
-                    sensor = new NoiseSensor(reading, updateFrequency);
-                    room.addSensor(sensor);
-                    hazardSensor =
-                            new NoiseSensor(reading, updateFrequency);
+                    hazardSensor = new NoiseSensor(reading, updateFrequency);
+                    room.addSensor(hazardSensor);
                     forWeightBase.put(hazardSensor, weight);
                 } catch (Exception e) {
                     throw new FileFormatException();
@@ -308,9 +376,8 @@ public class BuildingInitialiser {
 
             try {
                 int weight = Integer.parseInt(lastElementSplit[1]);
-                sensor = new TemperatureSensor(reading);
-                room.addSensor(sensor);
                 hazardSensor = new TemperatureSensor(reading);
+                room.addSensor(hazardSensor);
                 forWeightBase.put(hazardSensor, weight);
             } catch (Exception e) {
                 throw new FileFormatException();
@@ -325,7 +392,6 @@ public class BuildingInitialiser {
         String[] readingString = sensorInformation[1].split(",");
         int[] reading = new int[readingString.length];
         HazardSensor hazardSensor;
-        Sensor sensor;
         Room room = r;
 
 
@@ -344,11 +410,9 @@ public class BuildingInitialiser {
                 int idealValue = Integer.parseInt(sensorInformation[3]);
                 int variationLimit =
                         Integer.parseInt(sensorInformation[4]);
-                sensor = new CarbonDioxideSensor(reading, updateFrequency,
-                        idealValue, variationLimit);
-                room.addSensor(sensor);
                 hazardSensor = new CarbonDioxideSensor(reading, updateFrequency,
                         idealValue, variationLimit);
+                room.addSensor(hazardSensor);
                 forRuleBase.add(hazardSensor);
             } catch (Exception e) {
                 throw new FileFormatException();
@@ -360,11 +424,9 @@ public class BuildingInitialiser {
                         Integer.parseInt(sensorInformation[2]);
                 int capacity = Integer.parseInt(sensorInformation[3]);
 
-                sensor = new OccupancySensor(reading,
-                        updateFrequency, capacity);
-                room.addSensor(sensor);
                 hazardSensor = new OccupancySensor(reading,
                         updateFrequency, capacity);
+                room.addSensor(hazardSensor);
                 forRuleBase.add(hazardSensor);
 
             } catch (Exception e) {
@@ -375,9 +437,8 @@ public class BuildingInitialiser {
                 int updateFrequency =
                         Integer.parseInt(sensorInformation[2]);
 
-                sensor = new NoiseSensor(reading, updateFrequency);
-                room.addSensor(sensor);
                 hazardSensor = new NoiseSensor(reading, updateFrequency);
+                room.addSensor(hazardSensor);
                 forRuleBase.add(hazardSensor);
 
             } catch (Exception e) {
@@ -385,9 +446,8 @@ public class BuildingInitialiser {
             }
         } else if (sensorInformation.length == 2) {
             try {
-                sensor = new TemperatureSensor(reading);
-                room.addSensor(sensor);
                 hazardSensor = new TemperatureSensor(reading);
+                room.addSensor(hazardSensor);
                 forRuleBase.add(hazardSensor);
             } catch (Exception e) {
                 throw new FileFormatException();
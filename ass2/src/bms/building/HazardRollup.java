@@ -0,0 +1,456 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.room.Room;
+import bms.sensors.ReadingListener;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains hazard aggregates of the rooms of a campus of buildings, per
+ * floor, per building and over the whole campus: the maximum and mean hazard
+ * level of the rooms, and the number of rooms at or above a hazard level.
+ * <p>
+ * A room's hazard level is evaluated by its hazard evaluator, and is 0 while
+ * it has none. The rollup listens for reading changes of every timed sensor,
+ * and a change only marks the sensor's room dirty. Dirty rooms are evaluated
+ * again when an aggregate is next queried, and their change is applied to
+ * the aggregates of their floor, building and the campus. Each aggregate
+ * counts its rooms per hazard level, so a query costs the number of rooms
+ * that changed, not the number of rooms.
+ * <p>
+ * Rooms with a sensor that cannot notify of changes, such as a streaming
+ * sensor, are evaluated again on every query. A room's hazard evaluator is
+ * not watched: whoever replaces it, or changes the room's level in any other
+ * way, must report it with markDirty(Room). Rooms added to or removed from a
+ * floor after the rollup is created are tracked with addRoom(Floor, Room)
+ * and removeRoom(Room).
+ * <p>
+ * The sensors' listeners only hold the rollup weakly, so a rollup which is
+ * no longer used can be garbage collected without calling detach(); each
+ * listener then removes itself at the next change of its sensor's reading.
+ */
+public class HazardRollup {
+    // the aggregate of every room in the campus
+    private final Aggregate campus = new Aggregate();
+
+    // the aggregates of each building and floor
+    private final Map<Building, Aggregate> buildings = new IdentityHashMap<>();
+    private final Map<Floor, Aggregate> floors = new IdentityHashMap<>();
+
+    // the aggregate of the building each floor is in
+    private final Map<Floor, Aggregate> floorBuildings =
+            new IdentityHashMap<>();
+
+    // every room
+    private final Map<Room, RoomEntry> rooms = new IdentityHashMap<>();
+
+    // rooms whose level may have changed since the last query
+    private final List<RoomEntry> dirty = new ArrayList<>();
+
+    // rooms evaluated on every query
+    private final List<RoomEntry> polled = new ArrayList<>();
+
+    /**
+     * Creates a new rollup over every room of the given buildings, and starts
+     * listening for changes to their sensors' readings.
+     *
+     * @param campus the buildings to aggregate
+     */
+    public HazardRollup(List<Building> campus) {
+        for (Building building : campus) {
+            Aggregate buildingAggregate = new Aggregate();
+            buildings.put(building, buildingAggregate);
+            for (Floor floor : building.getFloors()) {
+                Aggregate floorAggregate = new Aggregate();
+                floors.put(floor, floorAggregate);
+                floorBuildings.put(floor, buildingAggregate);
+                for (Room room : floor.getRooms()) {
+                    add(room, floorAggregate, buildingAggregate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts aggregating a room added to a floor of the campus after the
+     * rollup was created.
+     *
+     * @param floor the floor of the campus the room is on
+     * @param room  the room to add
+     * @throws IllegalArgumentException if the floor is not in the campus, or
+     *                                  the room is already aggregated
+     */
+    public synchronized void addRoom(Floor floor, Room room)
+            throws IllegalArgumentException {
+        Aggregate floorAggregate = find(floors, floor);
+        if (rooms.containsKey(room)) {
+            throw new IllegalArgumentException();
+        }
+        add(room, floorAggregate, floorBuildings.get(floor));
+    }
+
+    /**
+     * Stops aggregating a room, e.g. one removed from its floor, and stops
+     * listening for changes to its sensors' readings.
+     *
+     * @param room a room in the campus
+     * @throws IllegalArgumentException if the room is not in the campus
+     */
+    public synchronized void removeRoom(Room room)
+            throws IllegalArgumentException {
+        RoomEntry entry = rooms.remove(room);
+        if (entry == null) {
+            throw new IllegalArgumentException();
+        }
+        entry.removeListeners();
+        entry.add(-1);
+        if (entry.marked) {
+            dirty.remove(entry);
+        }
+        if (entry.polled) {
+            polled.remove(entry);
+        }
+    }
+
+    /**
+     * Marks the given room to be evaluated again at the next query. This
+     * must be called after the room's hazard evaluator is replaced.
+     *
+     * @param room a room in the campus
+     * @throws IllegalArgumentException if the room is not in the campus
+     */
+    public synchronized void markDirty(Room room)
+            throws IllegalArgumentException {
+        RoomEntry entry = rooms.get(room);
+        if (entry == null) {
+            throw new IllegalArgumentException();
+        }
+        entry.markDirty();
+    }
+
+    /**
+     * Returns the highest hazard level of any room in the campus.
+     *
+     * @return maximum room hazard level; 0 if there are no rooms
+     */
+    public synchronized int getMaxHazard() {
+        refresh();
+        return campus.getMax();
+    }
+
+    /**
+     * Returns the highest hazard level of any room in the given building.
+     *
+     * @param building a building in the campus
+     * @return maximum room hazard level; 0 if there are no rooms
+     * @throws IllegalArgumentException if the building is not in the campus
+     */
+    public synchronized int getMaxHazard(Building building)
+            throws IllegalArgumentException {
+        refresh();
+        return find(buildings, building).getMax();
+    }
+
+    /**
+     * Returns the highest hazard level of any room on the given floor.
+     *
+     * @param floor a floor in the campus
+     * @return maximum room hazard level; 0 if there are no rooms
+     * @throws IllegalArgumentException if the floor is not in the campus
+     */
+    public synchronized int getMaxHazard(Floor floor)
+            throws IllegalArgumentException {
+        refresh();
+        return find(floors, floor).getMax();
+    }
+
+    /**
+     * Returns the mean hazard level of the rooms in the campus.
+     *
+     * @return mean room hazard level; 0 if there are no rooms
+     */
+    public synchronized double getMeanHazard() {
+        refresh();
+        return campus.getMean();
+    }
+
+    /**
+     * Returns the mean hazard level of the rooms in the given building.
+     *
+     * @param building a building in the campus
+     * @return mean room hazard level; 0 if there are no rooms
+     * @throws IllegalArgumentException if the building is not in the campus
+     */
+    public synchronized double getMeanHazard(Building building)
+            throws IllegalArgumentException {
+        refresh();
+        return find(buildings, building).getMean();
+    }
+
+    /**
+     * Returns the mean hazard level of the rooms on the given floor.
+     *
+     * @param floor a floor in the campus
+     * @return mean room hazard level; 0 if there are no rooms
+     * @throws IllegalArgumentException if the floor is not in the campus
+     */
+    public synchronized double getMeanHazard(Floor floor)
+            throws IllegalArgumentException {
+        refresh();
+        return find(floors, floor).getMean();
+    }
+
+    /**
+     * Returns the number of rooms in the campus with a hazard level at or
+     * above the given threshold.
+     *
+     * @param threshold hazard level to count rooms from, 0 to 100
+     * @return number of rooms at or above the threshold
+     */
+    public synchronized int countRoomsAbove(int threshold) {
+        refresh();
+        return campus.countFrom(threshold);
+    }
+
+    /**
+     * Returns the number of rooms in the given building with a hazard level
+     * at or above the given threshold.
+     *
+     * @param building  a building in the campus
+     * @param threshold hazard level to count rooms from, 0 to 100
+     * @return number of rooms at or above the threshold
+     * @throws IllegalArgumentException if the building is not in the campus
+     */
+    public synchronized int countRoomsAbove(Building building, int threshold)
+            throws IllegalArgumentException {
+        refresh();
+        return find(buildings, building).countFrom(threshold);
+    }
+
+    /**
+     * Returns the number of rooms on the given floor with a hazard level at
+     * or above the given threshold.
+     *
+     * @param floor     a floor in the campus
+     * @param threshold hazard level to count rooms from, 0 to 100
+     * @return number of rooms at or above the threshold
+     * @throws IllegalArgumentException if the floor is not in the campus
+     */
+    public synchronized int countRoomsAbove(Floor floor, int threshold)
+            throws IllegalArgumentException {
+        refresh();
+        return find(floors, floor).countFrom(threshold);
+    }
+
+    /**
+     * Stops listening for changes to the sensors' readings. The rollup must
+     * not be used afterwards.
+     */
+    public synchronized void detach() {
+        for (RoomEntry entry : rooms.values()) {
+            entry.removeListeners();
+        }
+    }
+
+    /**
+     * Adds a room to the given aggregates, and starts listening for changes
+     * to its sensors' readings.
+     */
+    private void add(Room room, Aggregate floorAggregate,
+            Aggregate buildingAggregate) {
+        RoomEntry entry = new RoomEntry(room, floorAggregate,
+                buildingAggregate);
+        rooms.put(room, entry);
+        entry.level = evaluate(room);
+        entry.add(1);
+        for (Sensor sensor : room.getSensors()) {
+            if (sensor instanceof TimedSensor) {
+                ((TimedSensor) sensor).addReadingListener(entry.listener);
+            } else {
+                entry.polled = true;
+            }
+        }
+        if (entry.polled) {
+            polled.add(entry);
+        }
+    }
+
+    /**
+     * Evaluates the dirty and polled rooms again and applies their changes
+     * to the aggregates.
+     */
+    private void refresh() {
+        for (int i = 0; i < dirty.size(); i++) {
+            RoomEntry entry = dirty.get(i);
+            entry.marked = false;
+            entry.update();
+        }
+        dirty.clear();
+        for (int i = 0; i < polled.size(); i++) {
+            polled.get(i).update();
+        }
+    }
+
+    /**
+     * Returns the aggregate of the given building or floor.
+     */
+    private static <K> Aggregate find(Map<K, Aggregate> aggregates, K key)
+            throws IllegalArgumentException {
+        Aggregate aggregate = aggregates.get(key);
+        if (aggregate == null) {
+            throw new IllegalArgumentException();
+        }
+        return aggregate;
+    }
+
+    /**
+     * Returns the current hazard level of a room, from 0 to 100.
+     */
+    private static int evaluate(Room room) {
+        HazardEvaluator evaluator = room.getHazardEvaluator();
+        if (evaluator == null) {
+            return 0;
+        }
+        return Math.max(0, Math.min(100, evaluator.evaluateHazardLevel()));
+    }
+
+    /**
+     * The number of rooms at each hazard level in a floor, building or the
+     * campus.
+     */
+    private static final class Aggregate {
+        // the number of rooms at each hazard level
+        private final int[] counts = new int[101];
+
+        // the number of rooms
+        private int rooms = 0;
+
+        // the sum of the rooms' hazard levels
+        private long sum = 0;
+
+        private void add(int level, int count) {
+            counts[level] += count;
+            rooms += count;
+            sum += (long) level * count;
+        }
+
+        private int getMax() {
+            for (int level = 100; level > 0; level--) {
+                if (counts[level] > 0) {
+                    return level;
+                }
+            }
+            return 0;
+        }
+
+        private double getMean() {
+            return rooms == 0 ? 0 : (double) sum / rooms;
+        }
+
+        private int countFrom(int threshold) {
+            int count = 0;
+            for (int level = Math.max(threshold, 0); level <= 100; level++) {
+                count += counts[level];
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A room's last evaluated hazard level, which is marked dirty when one
+     * of its sensors' readings changes.
+     */
+    private final class RoomEntry {
+        private final Room room;
+        private final Aggregate floor;
+        private final Aggregate building;
+
+        // the listener added to the room's timed sensors
+        private final RoomListener listener = new RoomListener(this);
+
+        // the level counted in the aggregates
+        private int level;
+
+        // whether the room is in the dirty list
+        private boolean marked = false;
+
+        // whether the room is evaluated on every query
+        private boolean polled = false;
+
+        private RoomEntry(Room room, Aggregate floor, Aggregate building) {
+            this.room = room;
+            this.floor = floor;
+            this.building = building;
+        }
+
+        private void readingChanged() {
+            synchronized (HazardRollup.this) {
+                // a removed room may still be notified once
+                if (rooms.get(room) == this) {
+                    markDirty();
+                }
+            }
+        }
+
+        private void removeListeners() {
+            for (Sensor sensor : room.getSensors()) {
+                if (sensor instanceof TimedSensor) {
+                    ((TimedSensor) sensor).removeReadingListener(listener);
+                }
+            }
+        }
+
+        private void markDirty() {
+            if (!marked && !polled) {
+                marked = true;
+                dirty.add(this);
+            }
+        }
+
+        private void update() {
+            int current = evaluate(room);
+            if (current != level) {
+                add(-1);
+                level = current;
+                add(1);
+            }
+        }
+
+        private void add(int count) {
+            floor.add(level, count);
+            building.add(level, count);
+            campus.add(level, count);
+        }
+    }
+
+    /**
+     * Marks a room dirty when one of its sensors' readings changes. The room
+     * is held weakly, so the sensors do not keep the rollup alive; once it
+     * has been collected the listener removes itself.
+     */
+    private static final class RoomListener implements ReadingListener {
+        private final WeakReference<RoomEntry> entry;
+
+        private RoomListener(RoomEntry entry) {
+            this.entry = new WeakReference<>(entry);
+        }
+
+        @Override
+        public void readingChanged(TimedSensor sensor, int previousReading) {
+            RoomEntry target = entry.get();
+            if (target == null) {
+                sensor.removeReadingListener(this);
+                return;
+            }
+            target.readingChanged();
+        }
+    }
+}
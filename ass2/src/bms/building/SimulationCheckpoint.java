@@ -0,0 +1,227 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.util.Checkpointable;
+import bms.util.TimedItemManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Class which saves and restores the runtime state of a simulation to and
+ * from a compact binary checkpoint.
+ * <p>
+ * A save file only describes the structure of a campus. A checkpoint holds
+ * everything that changes as the simulation runs: the timed item manager's
+ * clock, every sensor's position in its readings, every maintenance
+ * schedule's progress, and each room's fire drill and maintenance flags.
+ * <p>
+ * To restore a checkpoint, the buildings are first loaded from the same save
+ * file they were originally loaded from, then restoreCheckpoint is called
+ * on them to bring them back to the exact minute the checkpoint was taken.
+ */
+public class SimulationCheckpoint {
+    // marks the start of a checkpoint file, "BMSC"
+    private static final int MAGIC = 0x424D5343;
+
+    // version of the checkpoint format
+    private static final int VERSION = 1;
+
+    // room flag set when a fire drill is ongoing
+    private static final int FIRE_DRILL = 1;
+
+    // room flag set when maintenance is ongoing
+    private static final int MAINTENANCE = 2;
+
+    /**
+     * Saves a checkpoint of the given buildings and manager to the file with
+     * the given filename.
+     *
+     * @param buildings the buildings to save
+     * @param manager   the timed item manager ticking the buildings
+     * @param filename  path of the file to write the checkpoint to
+     * @throws IOException if an IOException is encountered when writing
+     */
+    public static void saveCheckpoint(List<Building> buildings,
+            TimedItemManager manager, String filename) throws IOException {
+        try (OutputStream out = new FileOutputStream(filename)) {
+            saveCheckpoint(buildings, manager, out);
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the given buildings and manager to the given
+     * stream. The stream is flushed but not closed.
+     *
+     * @param buildings the buildings to save
+     * @param manager   the timed item manager ticking the buildings
+     * @param stream    the stream to write the checkpoint to
+     * @throws IOException if an IOException is encountered when writing
+     */
+    public static void saveCheckpoint(List<Building> buildings,
+            TimedItemManager manager, OutputStream stream)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(manager.getMinutesElapsed());
+        out.writeInt(buildings.size());
+        for (Building building : buildings) {
+            List<Floor> floors = building.getFloors();
+            out.writeInt(floors.size());
+            for (Floor floor : floors) {
+                saveFloor(floor, out);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Restores a checkpoint from the file with the given filename onto the
+     * given buildings and manager.
+     *
+     * @param buildings the buildings to restore, loaded from the same save
+     *                  file as those the checkpoint was taken of
+     * @param manager   the timed item manager ticking the buildings
+     * @param filename  path of the file to read the checkpoint from
+     * @throws IOException         if an IOException is encountered when
+     *                             reading
+     * @throws FileFormatException if the file is not a checkpoint, or does
+     *                             not match the structure of the buildings
+     */
+    public static void restoreCheckpoint(List<Building> buildings,
+            TimedItemManager manager, String filename)
+            throws IOException, FileFormatException {
+        try (InputStream in = new FileInputStream(filename)) {
+            restoreCheckpoint(buildings, manager, in);
+        }
+    }
+
+    /**
+     * Restores a checkpoint read from the given stream onto the given
+     * buildings and manager. The stream is not closed.
+     * <p>
+     * If a FileFormatException is thrown, the buildings may have been
+     * partially restored.
+     *
+     * @param buildings the buildings to restore, loaded from the same save
+     *                  file as those the checkpoint was taken of
+     * @param manager   the timed item manager ticking the buildings
+     * @param stream    the stream to read the checkpoint from
+     * @throws IOException         if an IOException is encountered when
+     *                             reading
+     * @throws FileFormatException if the stream is not a checkpoint, or does
+     *                             not match the structure of the buildings
+     */
+    public static void restoreCheckpoint(List<Building> buildings,
+            TimedItemManager manager, InputStream stream)
+            throws IOException, FileFormatException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(stream));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new FileFormatException();
+            }
+            long minutes = in.readLong();
+            if (minutes < 0) {
+                throw new FileFormatException();
+            }
+            expect(in, buildings.size());
+            for (Building building : buildings) {
+                List<Floor> floors = building.getFloors();
+                expect(in, floors.size());
+                for (Floor floor : floors) {
+                    restoreFloor(floor, in);
+                }
+            }
+            manager.setMinutesElapsed(minutes);
+        } catch (FileFormatException e) {
+            throw e;
+        } catch (IOException e) {
+            // state which does not fit the buildings, or a truncated file
+            throw new FileFormatException();
+        }
+    }
+
+    private static void saveFloor(Floor floor, DataOutputStream out)
+            throws IOException {
+        List<Room> rooms = floor.getRooms();
+        MaintenanceSchedule schedule = floor.getMaintenanceSchedule();
+        out.writeInt(rooms.size());
+        out.writeBoolean(schedule != null);
+        for (Room room : rooms) {
+            int flags = 0;
+            if (room.fireDrillOngoing()) {
+                flags |= FIRE_DRILL;
+            }
+            if (room.maintenanceOngoing()) {
+                flags |= MAINTENANCE;
+            }
+            out.writeByte(flags);
+
+            List<Sensor> sensors = room.getSensors();
+            out.writeInt(sensors.size());
+            for (Sensor sensor : sensors) {
+                out.writeBoolean(sensor instanceof Checkpointable);
+                if (sensor instanceof Checkpointable) {
+                    ((Checkpointable) sensor).saveState(out);
+                }
+            }
+        }
+        if (schedule != null) {
+            schedule.saveState(out);
+        }
+    }
+
+    private static void restoreFloor(Floor floor, DataInputStream in)
+            throws IOException, FileFormatException {
+        List<Room> rooms = floor.getRooms();
+        MaintenanceSchedule schedule = floor.getMaintenanceSchedule();
+        expect(in, rooms.size());
+        if (in.readBoolean() != (schedule != null)) {
+            throw new FileFormatException();
+        }
+        for (Room room : rooms) {
+            int flags = in.readByte();
+            room.setFireDrill((flags & FIRE_DRILL) != 0);
+            room.setMaintenance((flags & MAINTENANCE) != 0);
+
+            List<Sensor> sensors = room.getSensors();
+            expect(in, sensors.size());
+            for (Sensor sensor : sensors) {
+                if (in.readBoolean() != (sensor instanceof Checkpointable)) {
+                    throw new FileFormatException();
+                }
+                if (sensor instanceof Checkpointable) {
+                    ((Checkpointable) sensor).restoreState(in);
+                }
+            }
+        }
+        if (schedule != null) {
+            schedule.restoreState(in);
+        }
+    }
+
+    /**
+     * Reads a count and checks it matches the expected count.
+     */
+    private static void expect(DataInputStream in, int expected)
+            throws IOException, FileFormatException {
+        if (in.readInt() != expected) {
+            throw new FileFormatException();
+        }
+    }
+}
@@ -3,13 +3,18 @@ package bms.floor;
 import bms.room.Room;
 import bms.room.RoomState;
 import bms.room.RoomType;
+import bms.util.Checkpointable;
 import bms.util.TimedItem;
 import bms.util.Encodable;
 import bms.util.TimedItemManager;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
 
-public class MaintenanceSchedule implements TimedItem, Encodable {
+public class MaintenanceSchedule implements TimedItem, Encodable,
+        Checkpointable {
     /**
      * list of rooms
      */
@@ -31,6 +36,11 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
      */
     private int indexOfNextRoom;
 
+    /**
+     * The timed item manager which ticks this schedule
+     */
+    private final TimedItemManager manager;
+
     /**
      * Creates a new maintenance schedule for a floor's list of rooms.
      * <p>
@@ -44,12 +54,27 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
      * @requires roomOrder != null && roomOrder.size() > 0
      */
     public MaintenanceSchedule(List<Room> roomOrder) {
+        this(roomOrder, TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new maintenance schedule for a floor's list of rooms,
+     * registered with the given timed item manager instead of the default one.
+     *
+     * @param roomOrder list of rooms on which to perform maintenance, in order
+     * @param manager the timed item manager which ticks this schedule
+     * @requires roomOrder != null && roomOrder.size() > 0 && manager != null
+     */
+    public MaintenanceSchedule(List<Room> roomOrder,
+                               TimedItemManager manager) {
         this.rooms = roomOrder;
         this.timeElapsed = 0;
         this.currentRoom = rooms.get(0);
-        this.indexOfNextRoom = 1;
+        // a single room is followed by itself
+        this.indexOfNextRoom = 1 % rooms.size();
+        this.manager = manager;
 
-        TimedItemManager.getInstance().registerTimedItem(this);
+        manager.registerTimedItem(this);
         currentRoom.setMaintenance(true);
     }
 
@@ -155,6 +180,56 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
         this.timeElapsed = 0;
     }
 
+    /**
+     * Unregisters this schedule from the timed item manager it was
+     * registered with, so that it is no longer ticked.
+     *
+     * @return true if the schedule was still registered
+     */
+    public boolean unregister() {
+        return manager.unregisterTimedItem(this);
+    }
+
+    /**
+     * Writes the schedule's progress: the position of the current room in the
+     * room order, the time elapsed maintaining it and the index of the next
+     * room.
+     * <p>
+     * The rooms' maintenance flags are not written, as they belong to the
+     * rooms themselves.
+     *
+     * @param out the output to write the state to
+     * @throws IOException if an IOException is encountered when writing
+     */
+    @Override
+    public void saveState(DataOutput out) throws IOException {
+        out.writeInt(rooms.indexOf(currentRoom));
+        out.writeInt(timeElapsed);
+        out.writeInt(indexOfNextRoom);
+    }
+
+    /**
+     * Restores the schedule's progress, as written by saveState(DataOutput).
+     *
+     * @param in the input to read the state from
+     * @throws IOException if an IOException is encountered when reading, or
+     * the progress read does not fit this schedule's room order
+     */
+    @Override
+    public void restoreState(DataInput in) throws IOException {
+        int indexOfCurrentRoom = in.readInt();
+        int elapsed = in.readInt();
+        int indexOfNext = in.readInt();
+        if (indexOfCurrentRoom < 0 || indexOfCurrentRoom >= rooms.size()
+                || elapsed < 0 || indexOfNext < 0
+                || indexOfNext >= rooms.size()) {
+            throw new IOException();
+        }
+        this.currentRoom = rooms.get(indexOfCurrentRoom);
+        this.timeElapsed = elapsed;
+        this.indexOfNextRoom = indexOfNext;
+    }
+
     /**
      * Returns the human-readable string representation of
      * this maintenance schedule.
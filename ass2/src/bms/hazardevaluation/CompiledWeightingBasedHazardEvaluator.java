@@ -0,0 +1,95 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A weighting-based hazard evaluator whose sensors and weightings are fixed
+ * when it is created.
+ * <p>
+ * The mapping given to the constructor is copied into parallel arrays of
+ * sensors and weightings, so evaluating walks two arrays without unboxing
+ * or allocating, and the weightings in order of sensor class name are
+ * worked out once. Later changes to the mapping do not affect the
+ * evaluator.
+ * <p>
+ * The hazard level and weightings returned are always the same as those of
+ * a WeightingBasedHazardEvaluator created with the same mapping.
+ */
+public class CompiledWeightingBasedHazardEvaluator
+        extends WeightingBasedHazardEvaluator {
+    // the sensors, in the iteration order of the mapping
+    private final HazardSensor[] sensors;
+
+    // the weighting of each sensor
+    private final int[] weightings;
+
+    // the weightings in alphabetical order of sensor class name
+    private final List<Integer> sortedWeightings;
+
+    /**
+     * Creates a new compiled weighting-based hazard evaluator with the given
+     * sensors and weightings.
+     * <p>
+     * Each weighting must be between 0 and 100 inclusive, and the total sum of
+     * all weightings must equal 100.
+     *
+     * @param sensors mapping of sensors to their respective weighting
+     * @throws IllegalArgumentException if any weighting is below 0 or above
+     *                                  100, or the weightings do not add up
+     *                                  to 100
+     */
+    public CompiledWeightingBasedHazardEvaluator(
+            Map<HazardSensor, Integer> sensors)
+            throws IllegalArgumentException {
+        super(sensors);
+        this.sensors = new HazardSensor[sensors.size()];
+        this.weightings = new int[sensors.size()];
+        int i = 0;
+        for (Map.Entry<HazardSensor, Integer> entry : sensors.entrySet()) {
+            this.sensors[i] = entry.getKey();
+            this.weightings[i] = entry.getValue();
+            i++;
+        }
+        this.sortedWeightings = super.getWeightings();
+    }
+
+    /**
+     * Returns the weighted average of the current hazard levels of
+     * all sensors in the map passed to the constructor.
+     * <p>
+     * The weightings given in the constructor should be used.
+     * The final evaluated hazard level should be rounded
+     * to the nearest integer between 0 and 100.
+     *
+     * @return weighted average of current sensor hazard levels
+     */
+    @Override
+    public int evaluateHazardLevel() {
+        // each weighted level is truncated, as in the uncompiled evaluator,
+        // so the sum is already a whole number
+        int average = 0;
+        for (int i = 0; i < sensors.length; i++) {
+            average += (sensors[i].getHazardLevel() * weightings[i]) / 100;
+        }
+        return average;
+    }
+
+    /**
+     * Returns a list containing the weightings associated with all of
+     * the sensors monitored by this hazard evaluator, in alphabetical order
+     * of sensor class name.
+     * <p>
+     * The weightings are worked out once; each call returns a new copy of
+     * them, which the caller may modify.
+     *
+     * @return weightings
+     */
+    @Override
+    public List<Integer> getWeightings() {
+        return new ArrayList<>(sortedWeightings);
+    }
+}
@@ -0,0 +1,209 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.ReadingListener;
+import bms.sensors.TimedSensor;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rule-based hazard evaluator which keeps the values its rules need up to
+ * date as sensor readings change, instead of reading every sensor on each
+ * evaluation.
+ * <p>
+ * The evaluator listens for reading changes of each timed sensor, see
+ * TimedSensor.addReadingListener(ReadingListener), and keeps a running
+ * total of the hazard levels of the sensors which are not occupancy
+ * sensors, and the hazard level of the occupancy sensor. Evaluating then
+ * takes constant time. Sensors which cannot notify of changes are read on
+ * each evaluation as before.
+ * <p>
+ * The sensors' listeners only hold the evaluator weakly, so an evaluator
+ * which is no longer used, e.g. one replaced in its room, can be garbage
+ * collected without calling detach(); each of its listeners then removes
+ * itself at the next change of its sensor's reading.
+ * <p>
+ * The hazard level returned is always the same as that of a
+ * RuleBasedHazardEvaluator over the same sensors, except that several
+ * sensors which are all occupancy sensors have a hazard level of 0, where a
+ * RuleBasedHazardEvaluator would divide by zero.
+ */
+public class IncrementalRuleBasedHazardEvaluator implements HazardEvaluator {
+    // the sensors in the order given
+    private final List<HazardSensor> sensors;
+
+    // the last known hazard level of each sensor
+    private final int[] hazards;
+
+    // whether each sensor is an occupancy sensor
+    private final boolean[] occupancy;
+
+    // positions of the sensors which do not notify of changes
+    private final int[] polled;
+
+    // position of the occupancy sensor which sets the multiplier; -1 if none
+    private final int multiplierSensor;
+
+    // the number of sensors which are not occupancy sensors
+    private final int count;
+
+    // sum of the hazard levels of the sensors which are not occupancy sensors
+    private int total = 0;
+
+    // listeners added to the timed sensors, by position; null for the others
+    private final ReadingListener[] listeners;
+
+    /**
+     * Creates a new incremental rule-based hazard evaluator with the given
+     * list of sensors, and starts listening for changes to their readings.
+     *
+     * @param sensors sensors to be used in the hazard level calculation
+     */
+    public IncrementalRuleBasedHazardEvaluator(List<HazardSensor> sensors) {
+        this.sensors = new ArrayList<>(sensors);
+        int size = this.sensors.size();
+        this.hazards = new int[size];
+        this.occupancy = new boolean[size];
+        this.listeners = new ReadingListener[size];
+        int[] polledPositions = new int[size];
+        int pollCount = 0;
+        int lastOccupancy = -1;
+        int others = 0;
+        for (int i = 0; i < size; i++) {
+            HazardSensor sensor = this.sensors.get(i);
+            occupancy[i] = OccupancySensor.class.isAssignableFrom(
+                    sensor.getSensorType());
+            if (occupancy[i]) {
+                lastOccupancy = i;
+            } else {
+                others++;
+            }
+            if (sensor instanceof TimedSensor) {
+                listeners[i] = new SensorListener(this, i);
+            } else {
+                polledPositions[pollCount++] = i;
+            }
+        }
+        this.polled = new int[pollCount];
+        System.arraycopy(polledPositions, 0, polled, 0, pollCount);
+        this.multiplierSensor = lastOccupancy;
+        this.count = others;
+
+        // listens before reading the initial levels, so no change is
+        // missed; the levels are read under the lock the listeners take, so
+        // a change seen meanwhile is overwritten by an equally new level
+        for (int i = 0; i < size; i++) {
+            if (listeners[i] != null) {
+                ((TimedSensor) this.sensors.get(i))
+                        .addReadingListener(listeners[i]);
+            }
+        }
+        synchronized (this) {
+            for (int i = 0; i < size; i++) {
+                update(i, this.sensors.get(i).getHazardLevel());
+            }
+        }
+    }
+
+    /**
+     * Returns a calculated hazard level based on applying a set of rules
+     * to the list of sensors passed to the constructor, from the hazard
+     * levels kept up to date as their readings changed.
+     *
+     * @return calculated hazard level according to a set of rules
+     */
+    @Override
+    public synchronized int evaluateHazardLevel() {
+        for (int i = 0; i < polled.length; i++) {
+            update(polled[i], sensors.get(polled[i]).getHazardLevel());
+        }
+        if (hazards.length == 0) {
+            return 0;
+        } else if (hazards.length == 1) {
+            return hazards[0];
+        } else if (count == 0) {
+            // only occupancy sensors, so there is nothing to average
+            return 0;
+        }
+        float multiplier = 1;
+        if (multiplierSensor >= 0) {
+            multiplier = ((float) hazards[multiplierSensor]) / 100;
+        }
+        float average = (float) (total / count);
+        average = average * multiplier;
+        return (int) (average);
+    }
+
+    /**
+     * Returns the string representation of this hazard evaluator, which is
+     * the same as that of a RuleBasedHazardEvaluator.
+     *
+     * @return "RuleBased"
+     */
+    @Override
+    public String toString() {
+        return "RuleBased";
+    }
+
+    /**
+     * Stops listening for changes to the sensors' readings, e.g. once the
+     * room is no longer in use. The evaluator must not be used afterwards.
+     * <p>
+     * An evaluator which is simply dropped stops being notified once it is
+     * garbage collected; this stops the notifications straight away.
+     */
+    public void detach() {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] != null) {
+                ((TimedSensor) sensors.get(i))
+                        .removeReadingListener(listeners[i]);
+            }
+        }
+    }
+
+    /**
+     * Records the hazard level of the sensor at the given position.
+     */
+    private void update(int position, int hazard) {
+        if (!occupancy[position]) {
+            total += hazard - hazards[position];
+        }
+        hazards[position] = hazard;
+    }
+
+    /**
+     * Updates the hazard level of one timed sensor when its reading changes,
+     * removing itself from the sensor once the evaluator has been collected.
+     */
+    private static final class SensorListener implements ReadingListener {
+        // the evaluator to update, held weakly so the sensor does not keep
+        // it alive
+        private final WeakReference<IncrementalRuleBasedHazardEvaluator>
+                evaluator;
+
+        // position of the sensor
+        private final int position;
+
+        private SensorListener(IncrementalRuleBasedHazardEvaluator evaluator,
+                int position) {
+            this.evaluator = new WeakReference<>(evaluator);
+            this.position = position;
+        }
+
+        @Override
+        public void readingChanged(TimedSensor sensor, int previousReading) {
+            IncrementalRuleBasedHazardEvaluator target = evaluator.get();
+            if (target == null) {
+                sensor.removeReadingListener(this);
+                return;
+            }
+            int hazard = ((HazardSensor) sensor).getHazardLevel();
+            synchronized (target) {
+                target.update(position, hazard);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps another hazard evaluator and remembers the hazard levels it has
+ * returned for recent combinations of sensor readings.
+ * <p>
+ * Timed sensors cycle through fixed arrays of readings, so a location's
+ * sensors keep returning to the same combinations. Each evaluation packs the
+ * current readings of the sensors into a key, and only calls the wrapped
+ * evaluator if that key is not in the memo. The memo holds at most a fixed
+ * number of keys, discarding the least recently used one when full.
+ * <p>
+ * The sensors given must include every sensor the wrapped evaluator depends
+ * on, and its result must depend only on their current readings.
+ */
+public class MemoisedHazardEvaluator implements HazardEvaluator {
+    // the evaluator whose results are remembered
+    private final HazardEvaluator evaluator;
+
+    // the sensors whose readings make up each key
+    private final HazardSensor[] sensors;
+
+    // the maximum number of keys remembered
+    private final int capacity;
+
+    // remembered hazard levels, from least to most recently used
+    private final Map<Key, Integer> memo;
+
+    // key filled with the current readings for each lookup, so that a hit
+    // allocates nothing
+    private final Key probe;
+
+    // the number of evaluations answered from the memo
+    private long hits = 0;
+
+    // the number of evaluations passed to the wrapped evaluator
+    private long misses = 0;
+
+    /**
+     * Creates a new memoised evaluator remembering up to the given number of
+     * results of the given evaluator.
+     *
+     * @param evaluator the evaluator to wrap
+     * @param sensors   the sensors whose readings determine its result
+     * @param capacity  the maximum number of combinations of readings to
+     *                  remember
+     * @throws IllegalArgumentException if evaluator or sensors is null, or
+     *                                  capacity is less than one
+     */
+    public MemoisedHazardEvaluator(HazardEvaluator evaluator,
+            List<HazardSensor> sensors, int capacity)
+            throws IllegalArgumentException {
+        if (evaluator == null || sensors == null || capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.evaluator = evaluator;
+        this.sensors = sensors.toArray(new HazardSensor[0]);
+        this.capacity = capacity;
+        this.probe = new Key(new int[this.sensors.length]);
+        this.memo = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> e) {
+                return size() > MemoisedHazardEvaluator.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the hazard level of the wrapped evaluator for the sensors'
+     * current readings, from the memo if they have been seen recently.
+     *
+     * @return hazard level, between 0 and 100 (inclusive)
+     */
+    @Override
+    public synchronized int evaluateHazardLevel() {
+        int[] readings = probe.readings;
+        int hash = 1;
+        for (int i = 0; i < sensors.length; i++) {
+            readings[i] = sensors[i].getCurrentReading();
+            hash = 31 * hash + readings[i];
+        }
+        probe.hash = hash;
+        Integer level = memo.get(probe);
+        if (level != null) {
+            hits++;
+            return level;
+        }
+        misses++;
+        int result = evaluator.evaluateHazardLevel();
+        memo.put(new Key(readings.clone(), hash), result);
+        return result;
+    }
+
+    /**
+     * Returns the evaluator whose results are remembered.
+     *
+     * @return wrapped evaluator
+     */
+    public HazardEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Returns the maximum number of combinations of readings remembered.
+     *
+     * @return memo capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of combinations of readings currently remembered.
+     *
+     * @return memo size
+     */
+    public synchronized int getSize() {
+        return memo.size();
+    }
+
+    /**
+     * Returns the number of evaluations answered from the memo.
+     *
+     * @return number of hits
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of evaluations passed to the wrapped evaluator.
+     *
+     * @return number of misses
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Forgets every remembered result and resets the hit and miss counts,
+     * e.g. after the wrapped evaluator's configuration has changed.
+     */
+    public synchronized void clear() {
+        memo.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Returns the string representation of the wrapped evaluator, so that
+     * memoisation does not change how a location is saved.
+     *
+     * @return string representation of the wrapped evaluator
+     */
+    @Override
+    public String toString() {
+        return evaluator.toString();
+    }
+
+    /**
+     * A combination of sensor readings, with its hash code computed once.
+     */
+    private static final class Key {
+        private final int[] readings;
+        private int hash;
+
+        private Key(int[] readings) {
+            this.readings = readings;
+        }
+
+        private Key(int[] readings, int hash) {
+            this.readings = readings;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key
+                    && Arrays.equals(readings, ((Key) obj).readings);
+        }
+    }
+}
@@ -44,7 +44,8 @@ public class RuleBasedHazardEvaluator implements HazardEvaluator {
             for (int i = 0; i < sensors.size(); i++) {
                 HazardSensor sensor = sensors.get(i);
                 int hazard = sensor.getHazardLevel();
-                if (sensor instanceof OccupancySensor) {
+                if (OccupancySensor.class.isAssignableFrom(
+                        sensor.getSensorType())) {
                     multiplier = ((float) hazard) / 100;
 
                     // Exclude OccupancySensor
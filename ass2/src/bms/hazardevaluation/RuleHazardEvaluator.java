@@ -0,0 +1,94 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Evaluates the hazard level of a location with a rule written in a small
+ * expression language over the hazard levels of its sensors.
+ * <p>
+ * A sensor is referred to by its type, e.g. NoiseSensor, or by the short
+ * names co2, noise, occupancy and temperature, and stands for its current
+ * hazard level. reading(type) is its current reading instead. Rules may use
+ * whole numbers (optionally followed by %, which is ignored), the operators
+ * + - * / (integer division, with division by zero giving 0), comparisons
+ * {@literal < <= > >= == !=}, and, or and not, where any non-zero value is
+ * true, and the functions max, min and avg of any number of arguments and
+ * if(condition, then, else). "a unless b" is a, or 0 if b is true.
+ * <p>
+ * For example: "max(co2, noise) unless occupancy &lt; 10%".
+ * <p>
+ * The rule is parsed and bound to the sensors once, when the evaluator is
+ * created, into a tree of closures; evaluating only walks that tree. The
+ * result is limited to between 0 and 100.
+ * <p>
+ * In a save file, a room's evaluator field holds "Rule=" followed by the
+ * rule, which must not contain a colon.
+ */
+public class RuleHazardEvaluator implements HazardEvaluator {
+    /**
+     * Prefix of a rule in a save file's evaluator field.
+     */
+    public static final String PREFIX = "Rule=";
+
+    // the rule as written
+    private final String rule;
+
+    // the compiled rule
+    private final IntSupplier compiled;
+
+    /**
+     * Creates a new rule hazard evaluator by compiling the given rule
+     * against the given sensors.
+     *
+     * @param rule    the rule, see the class description
+     * @param sensors the sensors the rule may refer to, at most one of
+     *                each type
+     * @throws IllegalArgumentException if the rule is not valid, or refers to
+     *                                  a type of sensor which is not in
+     *                                  sensors
+     */
+    public RuleHazardEvaluator(String rule, List<HazardSensor> sensors)
+            throws IllegalArgumentException {
+        if (rule == null || sensors == null) {
+            throw new IllegalArgumentException();
+        }
+        this.rule = rule;
+        this.compiled = RuleParser.compile(rule, sensors);
+    }
+
+    /**
+     * Returns the hazard level given by the rule for the sensors' current
+     * hazard levels.
+     *
+     * @return hazard level, between 0 and 100 (inclusive)
+     */
+    @Override
+    public int evaluateHazardLevel() {
+        return Math.max(0, Math.min(100, compiled.getAsInt()));
+    }
+
+    /**
+     * Returns the rule this evaluator was created with.
+     *
+     * @return rule as written
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the string representation of this hazard evaluator.
+     * <p>
+     * The format of the string to return is "Rule=" followed by the rule,
+     * as it appears in a save file's evaluator field.
+     *
+     * @return string representation of this hazard evaluator
+     */
+    @Override
+    public String toString() {
+        return PREFIX + rule;
+    }
+}
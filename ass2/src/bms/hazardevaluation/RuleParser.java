@@ -0,0 +1,366 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Parses a hazard rule and compiles it into a tree of closures, see
+ * RuleHazardEvaluator for the rule language.
+ * <p>
+ * Sensor names are resolved to sensors while parsing, so evaluating the
+ * compiled tree only calls getHazardLevel() on the sensors and does integer
+ * arithmetic.
+ */
+final class RuleParser {
+    // short names for the sensor types, besides their class names
+    private static final Map<String, String> ALIASES = new HashMap<>();
+
+    static {
+        ALIASES.put("co2", "CarbonDioxideSensor");
+        ALIASES.put("noise", "NoiseSensor");
+        ALIASES.put("occupancy", "OccupancySensor");
+        ALIASES.put("temperature", "TemperatureSensor");
+    }
+
+    // the rule being parsed
+    private final String source;
+
+    // the sensors the rule may refer to, by simple class name
+    private final Map<String, HazardSensor> sensors = new HashMap<>();
+
+    // position of the next character to read
+    private int position = 0;
+
+    private RuleParser(String source, List<HazardSensor> sensors) {
+        this.source = source;
+        for (HazardSensor sensor : sensors) {
+            this.sensors.put(sensor.getSensorType().getSimpleName(), sensor);
+        }
+    }
+
+    /**
+     * Parses the given rule and compiles it against the given sensors.
+     *
+     * @param source  the rule
+     * @param sensors the sensors the rule may refer to
+     * @return the compiled rule, returning the hazard level it evaluates to
+     * @throws IllegalArgumentException if the rule is not valid, or refers to
+     *                                  a sensor type not in sensors
+     */
+    static IntSupplier compile(String source, List<HazardSensor> sensors)
+            throws IllegalArgumentException {
+        RuleParser parser = new RuleParser(source, sensors);
+        IntSupplier rule = parser.parseUnless();
+        parser.skipSpaces();
+        if (parser.position != source.length()) {
+            throw parser.error("unexpected '"
+                    + source.charAt(parser.position) + "'");
+        }
+        return rule;
+    }
+
+    // unless := or ('unless' or)*
+    private IntSupplier parseUnless() {
+        IntSupplier value = parseOr();
+        while (accept("unless")) {
+            IntSupplier rule = value;
+            IntSupplier condition = parseOr();
+            value = () -> condition.getAsInt() != 0 ? 0 : rule.getAsInt();
+        }
+        return value;
+    }
+
+    // or := and ('or' and)*
+    private IntSupplier parseOr() {
+        IntSupplier value = parseAnd();
+        while (accept("or")) {
+            IntSupplier left = value;
+            IntSupplier right = parseAnd();
+            value = () -> left.getAsInt() != 0 || right.getAsInt() != 0
+                    ? 1 : 0;
+        }
+        return value;
+    }
+
+    // and := not ('and' not)*
+    private IntSupplier parseAnd() {
+        IntSupplier value = parseNot();
+        while (accept("and")) {
+            IntSupplier left = value;
+            IntSupplier right = parseNot();
+            value = () -> left.getAsInt() != 0 && right.getAsInt() != 0
+                    ? 1 : 0;
+        }
+        return value;
+    }
+
+    // not := 'not' not | comparison
+    private IntSupplier parseNot() {
+        if (accept("not")) {
+            IntSupplier operand = parseNot();
+            return () -> operand.getAsInt() == 0 ? 1 : 0;
+        }
+        return parseComparison();
+    }
+
+    // comparison := sum (('<' | '<=' | '>' | '>=' | '==' | '!=') sum)?
+    private IntSupplier parseComparison() {
+        IntSupplier left = parseSum();
+        if (accept("<=")) {
+            IntSupplier right = parseSum();
+            return () -> left.getAsInt() <= right.getAsInt() ? 1 : 0;
+        } else if (accept(">=")) {
+            IntSupplier right = parseSum();
+            return () -> left.getAsInt() >= right.getAsInt() ? 1 : 0;
+        } else if (accept("==")) {
+            IntSupplier right = parseSum();
+            return () -> left.getAsInt() == right.getAsInt() ? 1 : 0;
+        } else if (accept("!=")) {
+            IntSupplier right = parseSum();
+            return () -> left.getAsInt() != right.getAsInt() ? 1 : 0;
+        } else if (accept("<")) {
+            IntSupplier right = parseSum();
+            return () -> left.getAsInt() < right.getAsInt() ? 1 : 0;
+        } else if (accept(">")) {
+            IntSupplier right = parseSum();
+            return () -> left.getAsInt() > right.getAsInt() ? 1 : 0;
+        }
+        return left;
+    }
+
+    // sum := product (('+' | '-') product)*
+    private IntSupplier parseSum() {
+        IntSupplier value = parseProduct();
+        while (true) {
+            IntSupplier left = value;
+            if (accept("+")) {
+                IntSupplier right = parseProduct();
+                value = () -> left.getAsInt() + right.getAsInt();
+            } else if (accept("-")) {
+                IntSupplier right = parseProduct();
+                value = () -> left.getAsInt() - right.getAsInt();
+            } else {
+                return value;
+            }
+        }
+    }
+
+    // product := unary (('*' | '/') unary)*
+    private IntSupplier parseProduct() {
+        IntSupplier value = parseUnary();
+        while (true) {
+            IntSupplier left = value;
+            if (accept("*")) {
+                IntSupplier right = parseUnary();
+                value = () -> left.getAsInt() * right.getAsInt();
+            } else if (accept("/")) {
+                IntSupplier right = parseUnary();
+
+                // division by zero gives zero rather than failing evaluation
+                value = () -> {
+                    int divisor = right.getAsInt();
+                    return divisor == 0 ? 0 : left.getAsInt() / divisor;
+                };
+            } else {
+                return value;
+            }
+        }
+    }
+
+    // unary := '-' unary | primary
+    private IntSupplier parseUnary() {
+        if (accept("-")) {
+            IntSupplier operand = parseUnary();
+            return () -> -operand.getAsInt();
+        }
+        return parsePrimary();
+    }
+
+    // primary := number '%'? | name | name '(' arguments ')' | '(' unless ')'
+    private IntSupplier parsePrimary() {
+        skipSpaces();
+        if (accept("(")) {
+            IntSupplier value = parseUnless();
+            expect(")");
+            return value;
+        }
+        if (position < source.length()
+                && Character.isDigit(source.charAt(position))) {
+            int start = position;
+            while (position < source.length()
+                    && Character.isDigit(source.charAt(position))) {
+                position++;
+            }
+            int number;
+            try {
+                number = Integer.parseInt(source.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("number too large");
+            }
+            accept("%");
+            return () -> number;
+        }
+        String name = parseName();
+        if (accept("(")) {
+            return parseFunction(name);
+        }
+        return new SensorRef(findSensor(name));
+    }
+
+    // arguments := unless (',' unless)*
+    private IntSupplier parseFunction(String name) {
+        List<IntSupplier> arguments = new ArrayList<>();
+        do {
+            arguments.add(parseUnless());
+        } while (accept(","));
+        expect(")");
+        IntSupplier[] args = arguments.toArray(new IntSupplier[0]);
+        switch (name) {
+            case "max":
+                return () -> {
+                    int max = args[0].getAsInt();
+                    for (int i = 1; i < args.length; i++) {
+                        max = Math.max(max, args[i].getAsInt());
+                    }
+                    return max;
+                };
+            case "min":
+                return () -> {
+                    int min = args[0].getAsInt();
+                    for (int i = 1; i < args.length; i++) {
+                        min = Math.min(min, args[i].getAsInt());
+                    }
+                    return min;
+                };
+            case "avg":
+                return () -> {
+                    int sum = 0;
+                    for (int i = 0; i < args.length; i++) {
+                        sum += args[i].getAsInt();
+                    }
+                    return sum / args.length;
+                };
+            case "if":
+                if (args.length != 3) {
+                    throw error("if takes 3 arguments");
+                }
+                return () -> args[0].getAsInt() != 0
+                        ? args[1].getAsInt() : args[2].getAsInt();
+            case "reading":
+                if (arguments.size() != 1 || !(args[0] instanceof SensorRef)) {
+                    throw error("reading takes a sensor");
+                }
+                HazardSensor sensor = ((SensorRef) args[0]).sensor;
+                return sensor::getCurrentReading;
+            default:
+                throw error("unknown function " + name);
+        }
+    }
+
+    /**
+     * Reads a name made of letters, digits and underscores.
+     */
+    private String parseName() {
+        skipSpaces();
+        int start = position;
+        while (position < source.length()
+                && isNameChar(source.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error(position < source.length()
+                    ? "unexpected '" + source.charAt(position) + "'"
+                    : "unexpected end of rule");
+        }
+        return source.substring(start, position);
+    }
+
+    /**
+     * Returns whether the given character can be part of a name.
+     */
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Returns the sensor of the type with the given name or alias.
+     */
+    private HazardSensor findSensor(String name) {
+        String type = ALIASES.get(name.toLowerCase());
+        if (type == null) {
+            type = name;
+        }
+        HazardSensor sensor = sensors.get(type);
+        if (sensor == null) {
+            throw error("no " + type + " in room");
+        }
+        return sensor;
+    }
+
+    /**
+     * Reads the given token if it is next, returning whether it was. Words
+     * only match whole words, so "or" is not read from the name "or_x".
+     */
+    private boolean accept(String token) {
+        skipSpaces();
+        if (!source.startsWith(token, position)) {
+            return false;
+        }
+        int end = position + token.length();
+        if (Character.isLetter(token.charAt(0)) && end < source.length()
+                && isNameChar(source.charAt(end))) {
+            return false;
+        }
+        position = end;
+        return true;
+    }
+
+    /**
+     * Reads the given token, which must be next.
+     */
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("expected '" + token + "'");
+        }
+    }
+
+    /**
+     * Skips any whitespace before the next token.
+     */
+    private void skipSpaces() {
+        while (position < source.length()
+                && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Creates the exception for a syntax error at the current position.
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position "
+                + position + " of rule \"" + source + "\"");
+    }
+
+    /**
+     * The hazard level of a sensor, kept apart from other expressions so
+     * that reading() can find the sensor it is given.
+     */
+    private static final class SensorRef implements IntSupplier {
+        private final HazardSensor sensor;
+
+        private SensorRef(HazardSensor sensor) {
+            this.sensor = sensor;
+        }
+
+        @Override
+        public int getAsInt() {
+            return sensor.getHazardLevel();
+        }
+    }
+}
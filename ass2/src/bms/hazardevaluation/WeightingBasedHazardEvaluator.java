@@ -94,8 +94,8 @@ public class WeightingBasedHazardEvaluator implements HazardEvaluator {
             Map.Entry<HazardSensor, Integer> entry = iterator.next();
             HazardSensor sensor = entry.getKey();
             int value = entry.getValue();
-            unSortedNames.add(sensor.getClass().getSimpleName());
-            sortedNames.add(sensor.getClass().getSimpleName());
+            unSortedNames.add(sensor.getSensorType().getSimpleName());
+            sortedNames.add(sensor.getSensorType().getSimpleName());
             unSortedWeights.add(value);
         }
 
@@ -0,0 +1,78 @@
+package bms.util;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.room.Room;
+import bms.sensors.Sensor;
+
+/**
+ * Utility class that records the history of every room of a building with a
+ * HistoryRecorder.
+ * <p>
+ * For each room, the recorder tracks its hazard level, its state (as the
+ * ordinal of its RoomState) and the reading of each of its sensors, under
+ * the keys returned by getKey(Building, Floor, Room, String).
+ */
+public class BuildingHistory {
+    /**
+     * Suffix of the key a room's hazard level is recorded under.
+     */
+    public static final String HAZARD = "hazard";
+
+    /**
+     * Suffix of the key a room's state is recorded under.
+     */
+    public static final String STATE = "state";
+
+    /**
+     * Starts recording the hazard level, state and sensor readings of every
+     * room of the given building.
+     * <p>
+     * A room's hazard level is evaluated by its hazard evaluator at each
+     * minute, and recorded as 0 while it has none. Sensor readings are
+     * recorded under the sensor's type, e.g. "NoiseSensor".
+     *
+     * @param recorder the recorder to record the history with
+     * @param building the building whose rooms to record
+     */
+    public static void track(HistoryRecorder recorder, Building building) {
+        for (Floor floor : building.getFloors()) {
+            for (Room room : floor.getRooms()) {
+                recorder.track(getKey(building, floor, room, HAZARD), () -> {
+                    HazardEvaluator evaluator = room.getHazardEvaluator();
+                    return evaluator == null
+                            ? 0 : evaluator.evaluateHazardLevel();
+                });
+                recorder.track(getKey(building, floor, room, STATE),
+                        () -> room.evaluateRoomState().ordinal());
+                for (Sensor sensor : room.getSensors()) {
+                    recorder.track(getKey(building, floor, room,
+                            sensor.getSensorType().getSimpleName()),
+                            sensor::getCurrentReading);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the key a value of the given room is recorded under.
+     * <p>
+     * The key is the building's name, the floor number, the room number and
+     * the suffix, separated by slashes, e.g.
+     * "General Purpose South/1/101/hazard". Room numbers are only unique
+     * within a floor, so the floor number keeps rooms with the same number
+     * on different floors apart.
+     *
+     * @param building the building the room is in
+     * @param floor    the floor the room is on
+     * @param room     the room
+     * @param suffix   HAZARD, STATE or a sensor type
+     * @return key of the room's value
+     */
+    public static String getKey(Building building, Floor floor, Room room,
+            String suffix) {
+        return building.getName() + "/" + floor.getFloorNumber() + "/"
+                + room.getRoomNumber() + "/" + suffix;
+    }
+}
@@ -0,0 +1,160 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HazardRollupTest {
+    private TimedItemManager manager;
+    private Building building;
+    private Floor ground;
+    private Floor first;
+    private Room hot;
+
+    @Before
+    public void setBuilding() throws Exception {
+        manager = new TimedItemManager();
+        building = new Building("Rollup");
+        ground = new Floor(1, 10, 10);
+        first = new Floor(2, 10, 10);
+        building.addFloor(ground);
+        building.addFloor(first);
+        hot = addRoom(ground, 101, new TemperatureSensor(
+                new int[]{20, 70, 20}, manager));
+        addRoom(ground, 102, new CarbonDioxideSensor(
+                new int[]{1200, 1200, 2500}, 1, 600, 500, manager));
+        addRoom(first, 201, new CarbonDioxideSensor(
+                new int[]{500}, 1, 600, 500, manager));
+    }
+
+    private Room addRoom(Floor floor, int number,
+            HazardSensor sensor) throws Exception {
+        Room room = new Room(number, RoomType.OFFICE, 10);
+        room.addSensor(sensor);
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(sensor);
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+        floor.addRoom(room);
+        return room;
+    }
+
+    @Test
+    public void aggregates() {
+        HazardRollup rollup = new HazardRollup(
+                Collections.singletonList(building));
+        assertEquals(25, rollup.getMaxHazard());
+        assertEquals(25.0 / 3, rollup.getMeanHazard(), 1e-9);
+        assertEquals(25, rollup.getMaxHazard(ground));
+        assertEquals(0, rollup.getMaxHazard(first));
+        assertEquals(1, rollup.countRoomsAbove(building, 25));
+
+        manager.elapseOneMinute();
+        assertEquals(100, rollup.getMaxHazard());
+        assertEquals(100, rollup.getMaxHazard(building));
+        assertEquals(62.5, rollup.getMeanHazard(ground), 1e-9);
+        assertEquals(2, rollup.countRoomsAbove(1));
+
+        manager.elapseOneMinute();
+        assertEquals(50, rollup.getMaxHazard());
+        assertEquals(1, rollup.countRoomsAbove(ground, 50));
+        assertEquals(0, rollup.countRoomsAbove(first, 1));
+    }
+
+    @Test
+    public void markDirtyAfterEvaluatorChange() {
+        HazardRollup rollup = new HazardRollup(
+                Collections.singletonList(building));
+        hot.setHazardEvaluator(null);
+        manager.elapseOneMinute();
+        assertEquals(25, rollup.getMaxHazard());
+        rollup.markDirty(hot);
+        assertEquals(25, rollup.getMaxHazard());
+        assertEquals(1, rollup.countRoomsAbove(25));
+    }
+
+    @Test
+    public void evaluatorChangeReported() {
+        HazardRollup rollup = new HazardRollup(
+                Collections.singletonList(building));
+        assertEquals(25, rollup.getMaxHazard());
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(new TemperatureSensor(new int[]{70}, manager));
+        hot.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+        assertEquals(25, rollup.getMaxHazard());
+        rollup.markDirty(hot);
+        assertEquals(100, rollup.getMaxHazard());
+        hot.setHazardEvaluator(null);
+        rollup.markDirty(hot);
+        assertEquals(25, rollup.getMaxHazard(ground));
+    }
+
+    @Test
+    public void addAndRemoveRooms() throws Exception {
+        HazardRollup rollup = new HazardRollup(
+                Collections.singletonList(building));
+        Room added = addRoom(first, 202, new TemperatureSensor(
+                new int[]{20, 70}, manager));
+        rollup.addRoom(first, added);
+        assertEquals(2, rollup.countRoomsAbove(first, 0));
+        manager.elapseOneMinute();
+        assertEquals(100, rollup.getMaxHazard(first));
+
+        rollup.removeRoom(added);
+        rollup.removeRoom(hot);
+        assertEquals(0, rollup.getMaxHazard(first));
+        assertEquals(2, rollup.countRoomsAbove(0));
+        assertEquals(25, rollup.getMaxHazard(building));
+        manager.elapseOneMinute();
+        assertEquals(50, rollup.getMaxHazard());
+        assertEquals(1, rollup.countRoomsAbove(building, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addRoomTwice() {
+        new HazardRollup(Collections.singletonList(building))
+                .addRoom(ground, hot);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removeUnknownRoom() {
+        new HazardRollup(Collections.singletonList(building))
+                .removeRoom(new Room(301, RoomType.OFFICE, 10));
+    }
+
+    @Test
+    public void droppedRollupCollected() throws InterruptedException {
+        WeakReference<HazardRollup> dropped = new WeakReference<>(
+                new HazardRollup(Collections.singletonList(building)));
+        for (int attempt = 0; attempt < 50 && dropped.get() != null;
+                attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(dropped.get());
+
+        // the dropped rollup's listeners remove themselves
+        manager.elapseOneMinute();
+        assertEquals(100, new HazardRollup(
+                Collections.singletonList(building)).getMaxHazard());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFloor() {
+        new HazardRollup(Collections.singletonList(building))
+                .getMaxHazard(new Floor(3, 10, 10));
+    }
+}
@@ -0,0 +1,129 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SimulationCheckpointTest {
+    private TimedItemManager original;
+    private TimedItemManager restored;
+    private List<Building> originalBuildings;
+    private List<Building> restoredBuildings;
+
+    @Before
+    public void setup() throws Exception {
+        original = new TimedItemManager();
+        restored = new TimedItemManager();
+        originalBuildings = createBuildings(original, 3);
+        restoredBuildings = createBuildings(restored, 3);
+    }
+
+    private List<Building> createBuildings(TimedItemManager manager,
+            int roomCount) throws Exception {
+        Building building = new Building("General Purpose South");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 1; i <= roomCount; i++) {
+            Room room = new Room(100 + i, RoomType.STUDY, 20);
+            room.addSensor(new NoiseSensor(new int[]{55, 62, 70, 81}, i,
+                    manager));
+            floor.addRoom(room);
+            rooms.add(room);
+        }
+        manager.bindToCurrentThread();
+        try {
+            floor.createMaintenanceSchedule(rooms);
+        } finally {
+            TimedItemManager.unbindFromCurrentThread();
+        }
+        List<Building> buildings = new ArrayList<>();
+        buildings.add(building);
+        return buildings;
+    }
+
+    private Floor floor(List<Building> buildings) {
+        return buildings.get(0).getFloors().get(0);
+    }
+
+    @Test
+    public void restoresExactMinute() throws Exception {
+        original.elapseMinutes(17);
+        floor(originalBuildings).getRooms().get(2).setFireDrill(true);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SimulationCheckpoint.saveCheckpoint(originalBuildings, original, out);
+        SimulationCheckpoint.restoreCheckpoint(restoredBuildings, restored,
+                new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(17, restored.getMinutesElapsed());
+        original.elapseMinutes(9);
+        restored.elapseMinutes(9);
+        assertEquals(floor(originalBuildings).getMaintenanceSchedule()
+                        .toString(),
+                floor(restoredBuildings).getMaintenanceSchedule().toString());
+        for (int i = 0; i < 3; i++) {
+            Room expected = floor(originalBuildings).getRooms().get(i);
+            Room actual = floor(restoredBuildings).getRooms().get(i);
+            assertEquals(expected.fireDrillOngoing(),
+                    actual.fireDrillOngoing());
+            assertEquals(expected.maintenanceOngoing(),
+                    actual.maintenanceOngoing());
+            NoiseSensor expectedSensor =
+                    (NoiseSensor) expected.getSensor("NoiseSensor");
+            NoiseSensor actualSensor =
+                    (NoiseSensor) actual.getSensor("NoiseSensor");
+            assertEquals(expectedSensor.getTimeElapsed(),
+                    actualSensor.getTimeElapsed());
+            assertEquals(expectedSensor.getCurrentReading(),
+                    actualSensor.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void restoresSingleRoomFloor() throws Exception {
+        originalBuildings = createBuildings(original, 1);
+        restoredBuildings = createBuildings(restored, 1);
+        original.elapseMinutes(40);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SimulationCheckpoint.saveCheckpoint(originalBuildings, original, out);
+        SimulationCheckpoint.restoreCheckpoint(restoredBuildings, restored,
+                new ByteArrayInputStream(out.toByteArray()));
+
+        original.elapseMinutes(5);
+        restored.elapseMinutes(5);
+        assertEquals(floor(originalBuildings).getMaintenanceSchedule()
+                        .toString(),
+                floor(restoredBuildings).getMaintenanceSchedule().toString());
+        assertTrue(floor(restoredBuildings).getRooms().get(0)
+                .maintenanceOngoing());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void structureMismatch() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SimulationCheckpoint.saveCheckpoint(originalBuildings, original, out);
+        restoredBuildings.add(new Building("Hawken"));
+        SimulationCheckpoint.restoreCheckpoint(restoredBuildings, restored,
+                new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void notACheckpoint() throws Exception {
+        SimulationCheckpoint.restoreCheckpoint(restoredBuildings, restored,
+                new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+}
@@ -2,6 +2,7 @@ package bms.floor;
 
 import bms.room.Room;
 import bms.room.RoomType;
+import bms.util.TimedItemManager;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -84,6 +85,18 @@ public class MaintenanceScheduleTest {
                 maintenanceSchedule.getTimeElapsedCurrentRoom());
     }
 
+    @Test
+    public void unregister() {
+        TimedItemManager manager = new TimedItemManager();
+        MaintenanceSchedule schedule = new MaintenanceSchedule(rooms, manager);
+        manager.elapseOneMinute();
+        assertEquals(1, schedule.getTimeElapsedCurrentRoom());
+        assertTrue(schedule.unregister());
+        assertFalse(schedule.unregister());
+        manager.elapseOneMinute();
+        assertEquals(1, schedule.getTimeElapsedCurrentRoom());
+    }
+
     @Test
     public void testToString() {
         maintenanceSchedule.elapseOneMinute();
@@ -0,0 +1,64 @@
+package bms.hazardevaluation;
+
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompiledWeightingBasedHazardEvaluatorTest {
+    private TimedItemManager manager;
+    private Map<HazardSensor, Integer> weightings;
+
+    @Before
+    public void setSensors() {
+        manager = new TimedItemManager();
+        weightings = new LinkedHashMap<>();
+        weightings.put(new TemperatureSensor(new int[]{20, 70, 30},
+                manager), 33);
+        weightings.put(new NoiseSensor(new int[]{55, 67, 75, 60}, 2,
+                manager), 45);
+        weightings.put(new CarbonDioxideSensor(
+                new int[]{500, 1200, 2500, 6000}, 3, 600, 500, manager), 22);
+    }
+
+    @Test
+    public void matchesWeightingBased() {
+        WeightingBasedHazardEvaluator expected =
+                new WeightingBasedHazardEvaluator(weightings);
+        CompiledWeightingBasedHazardEvaluator evaluator =
+                new CompiledWeightingBasedHazardEvaluator(weightings);
+        for (int minute = 0; minute < 30; minute++) {
+            assertEquals(expected.evaluateHazardLevel(),
+                    evaluator.evaluateHazardLevel());
+            manager.elapseOneMinute();
+        }
+        assertEquals(expected.getWeightings(), evaluator.getWeightings());
+        assertEquals(22, (int) evaluator.getWeightings().get(0));
+        assertEquals("WeightingBased", evaluator.toString());
+    }
+
+    @Test
+    public void weightingsCopied() {
+        CompiledWeightingBasedHazardEvaluator evaluator =
+                new CompiledWeightingBasedHazardEvaluator(weightings);
+        List<Integer> copy = evaluator.getWeightings();
+        copy.clear();
+        assertTrue(copy.isEmpty());
+        assertEquals(3, evaluator.getWeightings().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weightingsMustAddUp() {
+        weightings.put(new NoiseSensor(new int[]{1}, 1, manager), 1);
+        new CompiledWeightingBasedHazardEvaluator(weightings);
+    }
+}
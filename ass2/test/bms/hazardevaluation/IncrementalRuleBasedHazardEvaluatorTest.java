@@ -0,0 +1,176 @@
+package bms.hazardevaluation;
+
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.SensorStore;
+import bms.sensors.StreamingSensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IncrementalRuleBasedHazardEvaluatorTest {
+    private TimedItemManager manager;
+    private List<HazardSensor> sensors;
+
+    @Before
+    public void setSensors() {
+        manager = new TimedItemManager();
+        sensors = new ArrayList<>();
+        sensors.add(new CarbonDioxideSensor(
+                new int[]{500, 1200, 2500, 6000, 800}, 2, 600, 500, manager));
+        sensors.add(new NoiseSensor(new int[]{55, 68, 75, 60}, 3, manager));
+        sensors.add(new OccupancySensor(new int[]{3, 8, 12, 5}, 4, 10,
+                manager));
+        sensors.add(new TemperatureSensor(new int[]{20, 30, 70, 25},
+                manager));
+    }
+
+    @Test
+    public void matchesRuleBased() {
+        RuleBasedHazardEvaluator expected =
+                new RuleBasedHazardEvaluator(sensors);
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(sensors);
+        for (int minute = 0; minute < 60; minute++) {
+            assertEquals(expected.evaluateHazardLevel(),
+                    evaluator.evaluateHazardLevel());
+            manager.elapseOneMinute();
+        }
+        assertEquals("RuleBased", evaluator.toString());
+    }
+
+    @Test
+    public void storedOccupancySetsMultiplier() {
+        SensorStore store = new SensorStore(manager);
+        List<HazardSensor> stored = new ArrayList<>();
+        stored.add(store.addNoiseSensor(new int[]{55, 68, 75, 60}, 3));
+        stored.add(store.addOccupancySensor(new int[]{3, 8, 12, 5}, 4, 10));
+        List<HazardSensor> timed = new ArrayList<>();
+        timed.add(new NoiseSensor(new int[]{55, 68, 75, 60}, 3, manager));
+        timed.add(new OccupancySensor(new int[]{3, 8, 12, 5}, 4, 10,
+                manager));
+        RuleBasedHazardEvaluator expected = new RuleBasedHazardEvaluator(timed);
+        RuleBasedHazardEvaluator plain = new RuleBasedHazardEvaluator(stored);
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(stored);
+        for (int minute = 0; minute < 20; minute++) {
+            assertEquals(expected.evaluateHazardLevel(),
+                    plain.evaluateHazardLevel());
+            assertEquals(expected.evaluateHazardLevel(),
+                    evaluator.evaluateHazardLevel());
+            manager.elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void occupancySubclassSetsMultiplier() {
+        sensors.set(2, new OccupancySensor(new int[]{3, 8, 12, 5}, 4, 10,
+                manager) {
+        });
+        RuleBasedHazardEvaluator plain = new RuleBasedHazardEvaluator(sensors);
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(sensors);
+        for (int minute = 0; minute < 20; minute++) {
+            int total = 0;
+            for (int i = 0; i < sensors.size(); i++) {
+                if (i != 2) {
+                    total += sensors.get(i).getHazardLevel();
+                }
+            }
+            float multiplier =
+                    ((float) sensors.get(2).getHazardLevel()) / 100;
+            int expected = (int) ((float) (total / 3) * multiplier);
+            assertEquals(expected, plain.evaluateHazardLevel());
+            assertEquals(expected, evaluator.evaluateHazardLevel());
+            manager.elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void pollsStreamingSensors() {
+        StreamingSensor stream = new StreamingSensor(OccupancySensor.class,
+                4, 10, reading -> Math.min(reading * 10, 100), manager);
+        sensors.set(2, stream);
+        RuleBasedHazardEvaluator expected =
+                new RuleBasedHazardEvaluator(sensors);
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(sensors);
+        for (int minute = 0; minute < 20; minute++) {
+            stream.offer(minute % 11);
+            manager.elapseOneMinute();
+            assertEquals(expected.evaluateHazardLevel(),
+                    evaluator.evaluateHazardLevel());
+        }
+
+        // an empty room multiplies the hazard level by zero
+        stream.offer(0);
+        manager.elapseOneMinute();
+        assertEquals(0, expected.evaluateHazardLevel());
+        assertEquals(0, evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void singleAndEmpty() {
+        assertEquals(0, new IncrementalRuleBasedHazardEvaluator(
+                new ArrayList<HazardSensor>()).evaluateHazardLevel());
+        List<HazardSensor> single = new ArrayList<>();
+        single.add(sensors.get(2));
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(single);
+        manager.elapseMinutes(8);
+        assertEquals(100, evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void onlyOccupancySensors() {
+        List<HazardSensor> occupancy = new ArrayList<>();
+        occupancy.add(sensors.get(2));
+        occupancy.add(new OccupancySensor(new int[]{7}, 1, 10, manager));
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(occupancy);
+        assertEquals(0, evaluator.evaluateHazardLevel());
+        manager.elapseMinutes(8);
+        assertEquals(0, evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void detachStopsUpdates() {
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(sensors);
+        int before = evaluator.evaluateHazardLevel();
+        evaluator.detach();
+        manager.elapseMinutes(6);
+        assertEquals(before, evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void droppedEvaluatorCollected() throws InterruptedException {
+        WeakReference<IncrementalRuleBasedHazardEvaluator> dropped =
+                new WeakReference<>(
+                        new IncrementalRuleBasedHazardEvaluator(sensors));
+        for (int attempt = 0; attempt < 50 && dropped.get() != null;
+                attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(dropped.get());
+
+        // the dropped evaluator's listeners remove themselves
+        IncrementalRuleBasedHazardEvaluator evaluator =
+                new IncrementalRuleBasedHazardEvaluator(sensors);
+        RuleBasedHazardEvaluator expected =
+                new RuleBasedHazardEvaluator(sensors);
+        manager.elapseMinutes(6);
+        assertEquals(expected.evaluateHazardLevel(),
+                evaluator.evaluateHazardLevel());
+    }
+}
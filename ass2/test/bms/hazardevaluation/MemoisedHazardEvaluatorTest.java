@@ -0,0 +1,68 @@
+package bms.hazardevaluation;
+
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MemoisedHazardEvaluatorTest {
+    private TimedItemManager manager;
+    private List<HazardSensor> sensors;
+
+    @Before
+    public void setSensors() {
+        manager = new TimedItemManager();
+        sensors = new ArrayList<>();
+        sensors.add(new CarbonDioxideSensor(new int[]{500, 1200, 2500},
+                1, 600, 500, manager));
+        sensors.add(new NoiseSensor(new int[]{55, 68, 75}, 1, manager));
+    }
+
+    @Test
+    public void matchesWrapped() {
+        RuleBasedHazardEvaluator expected =
+                new RuleBasedHazardEvaluator(sensors);
+        MemoisedHazardEvaluator evaluator = new MemoisedHazardEvaluator(
+                new RuleBasedHazardEvaluator(sensors), sensors, 8);
+        for (int minute = 0; minute < 30; minute++) {
+            assertEquals(expected.evaluateHazardLevel(),
+                    evaluator.evaluateHazardLevel());
+            manager.elapseOneMinute();
+        }
+        assertEquals(3, evaluator.getMissCount());
+        assertEquals(27, evaluator.getHitCount());
+        assertEquals(3, evaluator.getSize());
+        assertEquals("RuleBased", evaluator.toString());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        MemoisedHazardEvaluator evaluator = new MemoisedHazardEvaluator(
+                new RuleBasedHazardEvaluator(sensors), sensors, 2);
+        for (int minute = 0; minute < 6; minute++) {
+            evaluator.evaluateHazardLevel();
+            manager.elapseOneMinute();
+        }
+        // three combinations cycling through two slots never hit
+        assertEquals(0, evaluator.getHitCount());
+        assertEquals(6, evaluator.getMissCount());
+        assertEquals(2, evaluator.getSize());
+
+        evaluator.clear();
+        assertEquals(0, evaluator.getSize());
+        assertEquals(0, evaluator.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new MemoisedHazardEvaluator(new RuleBasedHazardEvaluator(sensors),
+                sensors, 0);
+    }
+}
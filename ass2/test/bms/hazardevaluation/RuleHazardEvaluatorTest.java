@@ -0,0 +1,119 @@
+package bms.hazardevaluation;
+
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RuleHazardEvaluatorTest {
+    private TimedItemManager manager;
+    private CarbonDioxideSensor co2;
+    private NoiseSensor noise;
+    private OccupancySensor occupancy;
+    private List<HazardSensor> sensors;
+
+    @Before
+    public void setSensors() {
+        manager = new TimedItemManager();
+        co2 = new CarbonDioxideSensor(new int[]{500, 1200, 2500, 6000, 800},
+                1, 600, 500, manager);
+        noise = new NoiseSensor(new int[]{55, 68, 75, 60, 90}, 1, manager);
+        occupancy = new OccupancySensor(new int[]{3, 0, 12, 5, 1}, 1, 10,
+                manager);
+        sensors = new ArrayList<>();
+        sensors.add(co2);
+        sensors.add(noise);
+        sensors.add(occupancy);
+    }
+
+    @Test
+    public void maxUnless() {
+        RuleHazardEvaluator evaluator = new RuleHazardEvaluator(
+                "max(co2, noise) unless occupancy < 10%", sensors);
+        for (int minute = 0; minute < 5; minute++) {
+            int expected = occupancy.getHazardLevel() < 10 ? 0
+                    : Math.max(co2.getHazardLevel(), noise.getHazardLevel());
+            assertEquals(expected, evaluator.evaluateHazardLevel());
+            manager.elapseOneMinute();
+        }
+        assertEquals("Rule=max(co2, noise) unless occupancy < 10%",
+                evaluator.toString());
+    }
+
+    @Test
+    public void arithmetic() {
+        assertEquals(7, new RuleHazardEvaluator("1 + 2 * 3", sensors)
+                .evaluateHazardLevel());
+        assertEquals(9, new RuleHazardEvaluator("(1 + 2) * 3", sensors)
+                .evaluateHazardLevel());
+        assertEquals(0, new RuleHazardEvaluator("5 / 0", sensors)
+                .evaluateHazardLevel());
+        assertEquals(20, new RuleHazardEvaluator("avg(10, 20, 30)", sensors)
+                .evaluateHazardLevel());
+        assertEquals(40, new RuleHazardEvaluator(
+                "if(not 1 or 2 > 3, 30, 40)", sensors).evaluateHazardLevel());
+    }
+
+    @Test
+    public void clampsResult() {
+        assertEquals(100, new RuleHazardEvaluator("150", sensors)
+                .evaluateHazardLevel());
+        assertEquals(0, new RuleHazardEvaluator("-5", sensors)
+                .evaluateHazardLevel());
+    }
+
+    @Test
+    public void readsSensors() {
+        RuleHazardEvaluator evaluator = new RuleHazardEvaluator(
+                "reading(NoiseSensor) - 50", sensors);
+        assertEquals(5, evaluator.evaluateHazardLevel());
+        manager.elapseOneMinute();
+        assertEquals(18, evaluator.evaluateHazardLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void syntaxError() {
+        new RuleHazardEvaluator("max(co2, ", sensors);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void trailingInput() {
+        new RuleHazardEvaluator("co2 noise", sensors);
+    }
+
+    @Test
+    public void keywordsNotSplitFromNames() {
+        String[] rules = {"not_co2", "co2 or_noise", "co2 and_noise",
+                "co2 unless_noise"};
+        for (String rule : rules) {
+            try {
+                new RuleHazardEvaluator(rule, sensors);
+                fail();
+            } catch (IllegalArgumentException expected) {
+                // the keyword must not be read, leaving "_..." as a name
+                assertFalse(expected.getMessage(),
+                        expected.getMessage().startsWith("no _"));
+            }
+        }
+        try {
+            new RuleHazardEvaluator("not_co2", sensors);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(),
+                    expected.getMessage().startsWith("no not_co2 in room"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingSensor() {
+        new RuleHazardEvaluator("temperature", sensors);
+    }
+}
@@ -0,0 +1,45 @@
+package bms.util;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.TemperatureSensor;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BuildingHistoryTest {
+
+    @Test
+    public void sameRoomNumberOnTwoFloors() throws Exception {
+        TimedItemManager manager = new TimedItemManager();
+        Building building = new Building("History");
+        Floor ground = new Floor(1, 10, 10);
+        Floor first = new Floor(2, 10, 10);
+        building.addFloor(ground);
+        building.addFloor(first);
+        Room downstairs = new Room(101, RoomType.OFFICE, 10);
+        downstairs.addSensor(new TemperatureSensor(new int[]{20}, manager));
+        ground.addRoom(downstairs);
+        Room upstairs = new Room(101, RoomType.OFFICE, 10);
+        upstairs.addSensor(new TemperatureSensor(new int[]{30}, manager));
+        first.addRoom(upstairs);
+
+        HistoryRecorder recorder = new HistoryRecorder(manager);
+        BuildingHistory.track(recorder, building);
+        manager.elapseOneMinute();
+
+        String downstairsKey = BuildingHistory.getKey(building, ground,
+                downstairs, "TemperatureSensor");
+        String upstairsKey = BuildingHistory.getKey(building, first,
+                upstairs, "TemperatureSensor");
+        assertEquals("History/1/101/TemperatureSensor", downstairsKey);
+        assertEquals("History/2/101/TemperatureSensor", upstairsKey);
+        assertEquals(20, recorder.getSeries(downstairsKey)
+                .query(TimeSeries.Resolution.MINUTE, 0, 2).get(0).getMax());
+        assertEquals(30, recorder.getSeries(upstairsKey)
+                .query(TimeSeries.Resolution.MINUTE, 0, 2).get(0).getMax());
+        assertEquals(6, recorder.getKeys().size());
+    }
+}